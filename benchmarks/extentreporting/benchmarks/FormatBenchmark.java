@@ -0,0 +1,72 @@
+package extentreporting.benchmarks;
+
+import extentreporting.ExtentReporter;
+import extentreporting.StreamingFormatter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pretty printing xml and JSON payloads of increasing size, in memory and streamed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FormatBenchmark
+{
+    @Param({"10", "1000", "100000"})
+    public int elements;
+
+    private ExtentReporter reporter;
+    private String xml;
+    private String json;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        reporter = new ExtentReporter(StubDriver.create(1024), "FormatBenchmark");
+
+        StringBuilder xmlBuilder = new StringBuilder("<response><items>");
+        StringBuilder jsonBuilder = new StringBuilder("{\"items\":[");
+        for (int i = 0; i < elements; i++)
+        {
+            xmlBuilder.append("<item id=\"").append(i).append("\"><name>item ").append(i).append("</name><price>").append(i * 1.5).append("</price></item>");
+            jsonBuilder.append(i == 0 ? "" : ",").append("{\"id\":").append(i).append(",\"name\":\"item ").append(i).append("\",\"price\":").append(i * 1.5).append('}');
+        }
+        xml = xmlBuilder.append("</items></response>").toString();
+        json = jsonBuilder.append("]}").toString();
+    }
+
+    @Benchmark
+    public String getPrettyFormatXML()
+    {
+        return reporter.getPrettyFormatXML(xml, 2);
+    }
+
+    @Benchmark
+    public String getPrettyFormatJSON()
+    {
+        return reporter.getPrettyFormatJSON(json);
+    }
+
+    @Benchmark
+    public StringWriter streamingFormatXML() throws Exception
+    {
+        StringWriter writer = new StringWriter();
+        StreamingFormatter.formatXML(new StringReader(xml), writer, 2);
+        return writer;
+    }
+
+    @Benchmark
+    public StringWriter streamingFormatJSON() throws Exception
+    {
+        StringWriter writer = new StringWriter();
+        StreamingFormatter.formatJSON(new StringReader(json), writer);
+        return writer;
+    }
+}
@@ -0,0 +1,43 @@
+package extentreporting.benchmarks;
+
+import extentreporting.ExtentReporter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time spent on the test thread by takeScreenshot, for screenshots of typical sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScreenshotBenchmark
+{
+    @Param({"100000", "1000000"})
+    public int screenshotBytes;
+
+    private ExtentReporter reporter;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        reporter = new ExtentReporter(StubDriver.create(screenshotBytes), "ScreenshotBenchmark");
+        reporter.setup();
+        reporter.createTest();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        reporter.getSession().close();
+    }
+
+    @Benchmark
+    public String takeScreenshot()
+    {
+        return reporter.takeScreenshot(true);
+    }
+}
@@ -0,0 +1,120 @@
+package extentreporting.benchmarks;
+
+import com.aventstack.extentreports.ExtentTest;
+import extentreporting.ExtentReporter;
+import extentreporting.ReportFlushScheduler;
+import extentreporting.TestContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the step methods with a number of steps already in the test, and the cost of resolving the test they log to.
+ * <p>
+ * Every step adds to the test, so the step benchmarks get a new reporter for each iteration and run a fixed batch of STEPS_PER_ITERATION steps in it.
+ * The test holds between existingSteps and existingSteps + STEPS_PER_ITERATION steps while it is measured. Their score is the time per batch.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StepBenchmark
+{
+    public static final int STEPS_PER_ITERATION = 100;
+
+    @State(Scope.Benchmark)
+    public static class Steps
+    {
+        @Param({"0", "1000", "10000"})
+        public int existingSteps;
+
+        private ExtentReporter reporter;
+
+        @Setup(Level.Iteration)
+        public void setup()
+        {
+            reporter = new ExtentReporter(StubDriver.create(1024), "StepBenchmark");
+            reporter.isTestParallel = true;
+            reporter.setup();
+            TestContext.setCurrentTestName("test0");
+
+            //The existing steps are rendered once, rather than by a background flush every DEFAULT_DIRTY_STEP_THRESHOLD steps.
+            //flushNow() also resets the dirty step count, so the batch isn't measured waiting for a render of the existing steps.
+            reporter.setFlushDirtyStepThreshold(Integer.MAX_VALUE);
+            for (int i = 0; i < existingSteps; i++)
+            {
+                reporter.stepInfo("existing step " + i);
+            }
+            reporter.getSession().getFlushScheduler().flushNow();
+            reporter.setFlushDirtyStepThreshold(ReportFlushScheduler.DEFAULT_DIRTY_STEP_THRESHOLD);
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown()
+        {
+            reporter.close();
+            TestContext.clear();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Lookup
+    {
+        @Param({"1", "1000"})
+        public int registeredTests;
+
+        private ExtentReporter reporter;
+
+        @Setup(Level.Trial)
+        public void setup()
+        {
+            reporter = new ExtentReporter(StubDriver.create(1024), "StepBenchmark");
+            reporter.isTestParallel = true;
+            reporter.setup();
+
+            for (int i = 0; i < registeredTests; i++)
+            {
+                reporter.createTest("test" + i);
+            }
+            TestContext.setCurrentTestName("test0");
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown()
+        {
+            reporter.close();
+            TestContext.clear();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 10, batchSize = STEPS_PER_ITERATION)
+    @Measurement(iterations = 30, batchSize = STEPS_PER_ITERATION)
+    public void stepPassed(Steps steps)
+    {
+        steps.reporter.stepPassed("benchmark step");
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 10, batchSize = STEPS_PER_ITERATION)
+    @Measurement(iterations = 30, batchSize = STEPS_PER_ITERATION)
+    public void stepInfo(Steps steps)
+    {
+        steps.reporter.stepInfo("benchmark step");
+    }
+
+    @Benchmark
+    public ExtentTest getTest(Lookup lookup)
+    {
+        return lookup.reporter.getTest("test" + (lookup.registeredTests - 1));
+    }
+
+    @Benchmark
+    public String getCurrentTestName(Lookup lookup)
+    {
+        return lookup.reporter.getCurrentTestName();
+    }
+}
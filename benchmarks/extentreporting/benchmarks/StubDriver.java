@@ -0,0 +1,32 @@
+package extentreporting.benchmarks;
+
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
+
+import java.lang.reflect.Proxy;
+import java.util.Random;
+
+/**
+ * StubDriver creates a WebDriver that also implements TakesScreenshot and returns a fixed image without a browser.
+ * Every other WebDriver method returns null.
+ */
+public final class StubDriver
+{
+    private StubDriver()
+    {
+    }
+
+    public static WebDriver create(int screenshotBytes)
+    {
+        byte[] image = new byte[screenshotBytes];
+        new Random(42).nextBytes(image);
+
+        return (WebDriver) Proxy.newProxyInstance(StubDriver.class.getClassLoader(), new Class<?>[]{WebDriver.class, TakesScreenshot.class}, (proxy, method, args) ->
+        {
+            if (method.getName().equals("getScreenshotAs"))
+                return ((OutputType<?>) args[0]).convertFromPngBytes(image);
+            return null;
+        });
+    }
+}
@@ -0,0 +1,56 @@
+package extentreporting.benchmarks;
+
+import extentreporting.ExtentReporter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * stepPassedWithTable, which includes converting the rows for MarkupHelper.createTable, for tables of increasing size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TableBenchmark
+{
+    @Param({"10", "1000", "50000"})
+    public int rows;
+
+    private ExtentReporter reporter;
+    private List<ArrayList<String>> table;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        reporter = new ExtentReporter(StubDriver.create(1024), "TableBenchmark");
+        reporter.setup();
+        reporter.createTest();
+
+        table = new ArrayList<>();
+        for (int i = 0; i < rows; i++)
+        {
+            table.add(new ArrayList<>(Arrays.asList("key" + i, "value" + i, String.valueOf(i))));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        reporter.getSession().close();
+    }
+
+    /**
+     * The table is copied on every call because older versions of stepPassedWithTable add the header row to the caller's list.
+     */
+    @Benchmark
+    public void stepPassedWithTable()
+    {
+        reporter.stepPassedWithTable("table", new ArrayList<>(table), "Key", "Value", "Index");
+    }
+}
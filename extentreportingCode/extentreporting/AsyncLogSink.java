@@ -0,0 +1,157 @@
+package extentreporting;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AsyncLogSink hands lines to a bounded ring buffer that a single background thread drains into the wrapped sink.
+ * Test threads only contend on the buffer, never on System.out's lock or the file. When the buffer is full the test thread waits for space
+ * while the writer thread runs, so no lines are lost before close(). The FlushPolicy decides how often the wrapped sink is flushed.
+ * The writer thread is a daemon: ReportSession closes its sink when it closes, also on JVM exit, so buffered lines are written before the process ends.
+ */
+public class AsyncLogSink implements LogSink
+{
+    public static final int DEFAULT_BUFFER_SIZE = Integer.getInteger("extent.log.bufferSize", 8192);
+
+    public enum FlushPolicy
+    {
+        /** Flush after every line, the same visibility as an unbuffered stream. */
+        EVERY_LINE,
+        /** Flush whenever the buffer has been drained. */
+        WHEN_IDLE,
+        /** Only flush on flush() and close(). */
+        ON_CLOSE
+    }
+
+    private static final Object POISON = new Object();
+
+    private final LogSink target;
+    private final FlushPolicy flushPolicy;
+    private final BlockingQueue<Object> buffer;
+    private final Thread writerThread;
+    private volatile boolean isClosed = false;
+
+    public AsyncLogSink(LogSink target)
+    {
+        this(target, FlushPolicy.WHEN_IDLE, DEFAULT_BUFFER_SIZE);
+    }
+
+    public AsyncLogSink(LogSink target, FlushPolicy flushPolicy, int bufferSize)
+    {
+        this.target = target;
+        this.flushPolicy = flushPolicy;
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+
+        this.writerThread = TestContext.newThread(this::drain, "extent-log-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    @Override
+    public void log(String line)
+    {
+        if (isClosed)
+            return;
+
+        try
+        {
+            enqueue(String.valueOf(line));
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits until every line logged before this call has been written and flushed by the background thread.
+     */
+    @Override
+    public void flush()
+    {
+        if (isClosed)
+            return;
+
+        CountDownLatch flushed = new CountDownLatch(1);
+        try
+        {
+            if (enqueue(flushed))
+                flushed.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        if (isClosed)
+            return;
+        isClosed = true;
+
+        try
+        {
+            if (enqueue(POISON))
+                writerThread.join(TimeUnit.SECONDS.toMillis(10));
+            else
+                target.close();
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits for space in the buffer for as long as the writer thread runs, so a caller never blocks on a buffer that nothing drains any more.
+     * Returns false when the writer thread has stopped, e.g. after close(). The entry is then dropped.
+     */
+    private boolean enqueue(Object entry) throws InterruptedException
+    {
+        while (writerThread.isAlive())
+        {
+            if (buffer.offer(entry, 100, TimeUnit.MILLISECONDS))
+                return true;
+        }
+        return false;
+    }
+
+    private void drain()
+    {
+        List<Object> batch = new ArrayList<>();
+        try
+        {
+            while (true)
+            {
+                batch.add(buffer.take());
+                buffer.drainTo(batch);
+
+                for (Object entry : batch)
+                {
+                    if (entry == POISON)
+                    {
+                        target.close();
+                        return;
+                    } else if (entry instanceof CountDownLatch)
+                    {
+                        target.flush();
+                        ((CountDownLatch) entry).countDown();
+                    } else
+                    {
+                        target.log((String) entry);
+                        if (flushPolicy == FlushPolicy.EVERY_LINE) target.flush();
+                    }
+                }
+                batch.clear();
+
+                if (flushPolicy == FlushPolicy.WHEN_IDLE && buffer.isEmpty()) target.flush();
+            }
+        } catch (InterruptedException e)
+        {
+            target.close();
+        }
+    }
+}
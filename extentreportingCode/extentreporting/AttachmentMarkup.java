@@ -0,0 +1,77 @@
+package extentreporting;
+
+import com.aventstack.extentreports.markuputils.Markup;
+
+/**
+ * AttachmentMarkup links a step to a file in the report folder instead of embedding its content in the html.
+ * With a preview, the step also shows the first part of the content and a collapsed viewer that only loads the file once it is expanded,
+ * so the report stays small and opens quickly however large the attachment is.
+ */
+public class AttachmentMarkup implements Markup
+{
+    private static final long serialVersionUID = 1L;
+
+    public static final int DEFAULT_PREVIEW_LENGTH = Integer.getInteger("extent.artifact.previewChars", 2000);
+
+    private final String href;
+    private final String label;
+    private final String preview;
+
+    /**
+     * @param href path of the attachment relative to the report page
+     * @param label text of the link
+     */
+    public AttachmentMarkup(String href, String label)
+    {
+        this(href, label, null);
+    }
+
+    /**
+     * @param preview start of the content shown inline, cut to DEFAULT_PREVIEW_LENGTH. Null for a plain link.
+     */
+    public AttachmentMarkup(String href, String label, String preview)
+    {
+        this.href = href;
+        this.label = label;
+        this.preview = (preview != null && preview.length() > DEFAULT_PREVIEW_LENGTH) ? preview.substring(0, DEFAULT_PREVIEW_LENGTH) : preview;
+    }
+
+    @Override
+    public String getMarkup()
+    {
+        String url = href.replace('\\', '/');
+        String link = "<a href='" + url + "' target='_blank'>" + label + "</a>";
+        if (preview == null)
+            return link;
+
+        //The iframe has no src until the details element is opened, so the browser doesn't fetch the file when the report loads.
+        return "<div class='attachment'>" + link
+                + "<pre class='attachment-preview'>" + escape(preview) + "\n...</pre>"
+                + "<details ontoggle=\"var f=this.querySelector('iframe');if(this.open&&!f.src)f.src=f.getAttribute('data-src');\">"
+                + "<summary>Show full content</summary>"
+                + "<iframe data-src='" + url + "' style='width:100%;height:480px;border:0;background:#fff;'></iframe>"
+                + "</details></div>";
+    }
+
+    /**
+     * Escapes text for html content and attribute values.
+     */
+    static String escape(String text)
+    {
+        StringBuilder escaped = new StringBuilder(text.length() + 16);
+        for (int i = 0; i < text.length(); i++)
+        {
+            char c = text.charAt(i);
+            switch (c)
+            {
+                case '<': escaped.append("&lt;"); break;
+                case '>': escaped.append("&gt;"); break;
+                case '&': escaped.append("&amp;"); break;
+                case '\'': escaped.append("&#39;"); break;
+                case '"': escaped.append("&quot;"); break;
+                default: escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+}
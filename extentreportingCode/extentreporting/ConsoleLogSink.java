@@ -0,0 +1,43 @@
+package extentreporting;
+
+import java.io.PrintStream;
+
+/**
+ * ConsoleLogSink prints straight to a PrintStream, System.out by default.
+ * Every line takes the stream's lock, wrap it in an AsyncLogSink when many threads log at once.
+ */
+public class ConsoleLogSink implements LogSink
+{
+    private final PrintStream output;
+
+    public ConsoleLogSink()
+    {
+        this(System.out);
+    }
+
+    public ConsoleLogSink(PrintStream output)
+    {
+        this.output = output;
+    }
+
+    @Override
+    public void log(String line)
+    {
+        output.println(line);
+    }
+
+    @Override
+    public void flush()
+    {
+        output.flush();
+    }
+
+    /**
+     * The console itself is never closed.
+     */
+    @Override
+    public void close()
+    {
+        output.flush();
+    }
+}
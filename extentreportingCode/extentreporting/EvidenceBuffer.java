@@ -0,0 +1,190 @@
+package extentreporting;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * EvidenceBuffer keeps the last few snapshots of one test in memory: a screenshot and the page source after each step.
+ * Nothing is written while the test runs. ExtentReporter writes the snapshots to the report when the test fails, and drops them when it passes.
+ * Page sources are kept gzipped. Screenshots are kept as the PNG bytes the driver returned, which are already deflate compressed.
+ * <p>
+ * Enabled with -Dextent.evidence.size=N, the number of snapshots kept per test. -Dextent.evidence.pageSource=false only keeps screenshots.
+ */
+public class EvidenceBuffer
+{
+    public static final int DEFAULT_SIZE = Integer.getInteger("extent.evidence.size", 0);
+    public static final boolean DEFAULT_PAGE_SOURCE = Boolean.parseBoolean(System.getProperty("extent.evidence.pageSource", "true"));
+
+    /**
+     * One capture. Either part may be null when the driver couldn't provide it.
+     */
+    public static final class Snapshot
+    {
+        private final long timestamp;
+        private final String label;
+        private final byte[] screenshot;
+        private final byte[] compressedPageSource;
+
+        private Snapshot(long timestamp, String label, byte[] screenshot, byte[] compressedPageSource)
+        {
+            this.timestamp = timestamp;
+            this.label = label;
+            this.screenshot = screenshot;
+            this.compressedPageSource = compressedPageSource;
+        }
+
+        public long getTimestamp()
+        {
+            return timestamp;
+        }
+
+        /**
+         * The message of the step the snapshot was taken after.
+         */
+        public String getLabel()
+        {
+            return label;
+        }
+
+        public byte[] getScreenshot()
+        {
+            return screenshot;
+        }
+
+        public String getPageSource() throws IOException
+        {
+            return (compressedPageSource != null) ? decompress(compressedPageSource) : null;
+        }
+
+        private int getSize()
+        {
+            return ((screenshot != null) ? screenshot.length : 0) + ((compressedPageSource != null) ? compressedPageSource.length : 0);
+        }
+    }
+
+    private final Snapshot[] snapshots;
+    private final ReentrantLock lock = new ReentrantLock();
+    private int next = 0;
+    private int count = 0;
+    private long bytes = 0;
+
+    public EvidenceBuffer(int size)
+    {
+        this.snapshots = new Snapshot[Math.max(1, size)];
+    }
+
+    /**
+     * Adds a snapshot, replacing the oldest one when the buffer is full.
+     */
+    public void add(String label, byte[] screenshot, String pageSource) throws IOException
+    {
+        Snapshot snapshot = new Snapshot(System.currentTimeMillis(), label, screenshot, (pageSource != null) ? compress(pageSource) : null);
+
+        lock.lock();
+        try
+        {
+            Snapshot replaced = snapshots[next];
+            if (replaced != null)
+                bytes -= replaced.getSize();
+            else
+                count++;
+            snapshots[next] = snapshot;
+            bytes += snapshot.getSize();
+            next = (next + 1) % snapshots.length;
+        } finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes and returns the snapshots, oldest first.
+     */
+    public List<Snapshot> drain()
+    {
+        lock.lock();
+        try
+        {
+            List<Snapshot> drained = new ArrayList<>(count);
+            int start = (next - count + snapshots.length) % snapshots.length;
+            for (int i = 0; i < count; i++)
+            {
+                int index = (start + i) % snapshots.length;
+                drained.add(snapshots[index]);
+                snapshots[index] = null;
+            }
+            next = 0;
+            count = 0;
+            bytes = 0;
+            return drained;
+        } finally
+        {
+            lock.unlock();
+        }
+    }
+
+    public int getCapacity()
+    {
+        return snapshots.length;
+    }
+
+    public int getCount()
+    {
+        lock.lock();
+        try
+        {
+            return count;
+        } finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Memory held by the buffered snapshots, compressed.
+     */
+    public long getBytes()
+    {
+        lock.lock();
+        try
+        {
+            return bytes;
+        } finally
+        {
+            lock.unlock();
+        }
+    }
+
+    static byte[] compress(String text) throws IOException
+    {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, text.length() / 4));
+        try (OutputStream gzip = new GZIPOutputStream(compressed))
+        {
+            gzip.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return compressed.toByteArray();
+    }
+
+    static String decompress(byte[] compressed) throws IOException
+    {
+        ByteArrayOutputStream text = new ByteArrayOutputStream(compressed.length * 4);
+        try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(compressed)))
+        {
+            byte[] chunk = new byte[8192];
+            for (int read; (read = gzip.read(chunk)) > 0; )
+            {
+                text.write(chunk, 0, read);
+            }
+        }
+        return new String(text.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -1,42 +1,95 @@
 package extentreporting;
 
+import org.junit.jupiter.api.TestFactory;
 import org.junit.jupiter.api.extension.*;
 
 import java.lang.reflect.Method;
 
-public class ExtentListener implements TestWatcher, AfterEachCallback
+public class ExtentListener implements TestWatcher, BeforeAllCallback, AfterEachCallback, BeforeTestExecutionCallback, AfterTestExecutionCallback
 {
-    private static ExtentReporter extent = null;
+    private static StepReporter extent = null;
     private static final String extentName = "EXTENTREPORTER";
 
-    public static void setExtent(ExtentReporter extent)
+    public static void setExtent(StepReporter extent)
     {
         ExtentListener.extent = extent;
     }
 
-    private ExtentReporter getExtentFromStore(ExtensionContext context)
+    private StepReporter getExtentFromStore(ExtensionContext context)
     {
-        return ((ExtentReporter)getStore(context).get(extentName));
+        return ((StepReporter)getStore(context).get(extentName));
     }
 
+    //The shared report session lives as long as the launcher's root store, which is closed once every test class has run.
+    @Override
+    public void beforeAll(ExtensionContext context) throws Exception {
+        if (ReportSessionManager.isSharedSessionEnabled())
+            context.getRoot().getStore(ExtensionContext.Namespace.GLOBAL).getOrComputeIfAbsent(ReportSessionManager.class,
+                    key -> (ExtensionContext.Store.CloseableResource) ReportSessionManager::closeSharedSession);
+    }
+
+    //Binds the test name to the executing thread so ExtentReporter.getCurrentTestName() doesn't need to walk the stack.
+    @Override
+    public void beforeTestExecution(ExtensionContext context) throws Exception {
+        TestContext.setCurrentTestName(getTestName(context));
+    }
+
+    //Dynamic tests from a @TestFactory run after this callback, so they keep the factory's name until afterEach.
+    @Override
+    public void afterTestExecution(ExtensionContext context) throws Exception {
+        if (!context.getRequiredTestMethod().isAnnotationPresent(TestFactory.class))
+            TestContext.clear();
+    }
+
+    //A reporter with its own session is closed once the top level test class it was used in has finished, after its @AfterAll methods.
     @Override
     public void afterEach(ExtensionContext context) throws Exception {
-        getStore(context).put(extentName, extent);
+        //Runs after a @TestFactory's dynamic tests, also when the factory was aborted and neither testSuccessful nor testFailed clears the name.
+        TestContext.clear();
+        StepReporter reporter = extent;
+        getStore(context).put(extentName, reporter);
+        if (reporter != null)
+            getStore(getClassContext(context)).getOrComputeIfAbsent(reporter, key -> (ExtensionContext.Store.CloseableResource) reporter::close);
+    }
+
+    private static ExtensionContext getClassContext(ExtensionContext context) {
+        ExtensionContext classContext = context;
+        while (classContext.getParent().flatMap(ExtensionContext::getTestClass).isPresent())
+            classContext = classContext.getParent().get();
+        return classContext;
     }
     //Stores all test information
     private ExtensionContext.Store getStore(ExtensionContext context) {
         return context.getStore(ExtensionContext.Namespace.create(getClass(), context.getClass()));
     }
 
+    /**
+     * Plain @Test methods are reported under their method name.
+     * Each invocation of a @ParameterizedTest or @RepeatedTest gets its own entry, e.g. "login [1] admin".
+     */
+    private String getTestName(ExtensionContext context) {
+        Method testMethod = context.getRequiredTestMethod();
+        String displayName = context.getDisplayName();
+        boolean isInvocation = context.getParent().flatMap(ExtensionContext::getTestMethod).isPresent();
+
+        return isInvocation ? testMethod.getName() + " " + displayName : testMethod.getName();
+    }
+
     @Override
     public void testSuccessful(ExtensionContext context) {
         Method testMethod = context.getRequiredTestMethod(); //Prints out test method used
 
+        TestContext.setCurrentTestName(getTestName(context));
         try {
             System.out.println((testMethod.getName() +  "Pass"));
             getExtentFromStore(context).stepPassed("Test Complete");
+            getExtentFromStore(context).discardEvidence();
+            getExtentFromStore(context).recordStepTimings();
+            getExtentFromStore(context).publishSteps();
         } catch (Exception e) {
             System.out.println(e.getMessage());
+        } finally {
+            TestContext.clear();
         }
 
     }
@@ -44,13 +97,22 @@ public class ExtentListener implements TestWatcher, AfterEachCallback
     @Override
     public void testFailed(ExtensionContext context, Throwable cause)
     {
+        TestContext.setCurrentTestName(getTestName(context));
         try
         {
+            //Evidence is written first, so the snapshots are of the steps leading up to the failure.
+            getExtentFromStore(context).writeEvidence();
             getExtentFromStore(context).stepFailed("Test Fail [Name] - " + context.getUniqueId());
             getExtentFromStore(context).stepFailed("Test Fail [Cause] - " + cause.toString());
+            getExtentFromStore(context).discardEvidence();
+            getExtentFromStore(context).recordStepTimings();
+            getExtentFromStore(context).publishSteps();
         } catch (Exception e)
         {
             System.out.println(e.getMessage());
+        } finally
+        {
+            TestContext.clear();
         }
     }
 }
@@ -1,7 +1,6 @@
 package extentreporting;
 
 import com.aventstack.extentreports.reporter.ExtentSparkReporter;
-import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.TestInfo;
 import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
 import org.junit.jupiter.api.extension.ExtensionContext;
@@ -9,49 +8,62 @@ import org.junit.jupiter.api.extension.TestWatcher;
 import org.openqa.selenium.OutputType;
 import org.openqa.selenium.TakesScreenshot;
 import org.openqa.selenium.WebDriver;
-import selenium.SeleniumSupport;
+import org.openqa.selenium.WebElement;
 import com.aventstack.extentreports.*;
 import com.aventstack.extentreports.markuputils.CodeLanguage;
 import com.aventstack.extentreports.markuputils.ExtentColor;
+import com.aventstack.extentreports.markuputils.Markup;
 import com.aventstack.extentreports.markuputils.MarkupHelper;
 import com.aventstack.extentreports.reporter.ExtentHtmlReporter;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonParser;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Source;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.stream.StreamResult;
-import javax.xml.transform.stream.StreamSource;
 import java.awt.*;
 import java.io.File;
-import java.io.PrintStream;
-import java.io.StringReader;
-import java.io.StringWriter;
-import java.lang.reflect.Method;
-import java.text.SimpleDateFormat;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
-import org.junit.jupiter.api.Test;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
 
-public class ExtentReporter //extends SeleniumSupport
+public class ExtentReporter implements StepReporter //extends SeleniumSupport
 {
+    private ReportSession session;
     private ExtentReports report;
-    private List<ExtentTest> extentTests = new ArrayList<>();
+    private final ConcurrentMap<String, ExtentTest> extentTests = new ConcurrentHashMap<>();
     private String unitTestName;
     public boolean isTestParallel = false;
     public boolean isReportingTurnedOff = false;
-    private int screenshotCounter = 0;
+    //Steps are appended to lock-free per-test buffers and published by the flush thread. Meant for suites running thousands of virtual threads.
+    public boolean isVirtualThreadMode = false;
+    //Steps stay in a per-test buffer owned by the test's thread and reach the report in one batch when the test finishes.
+    public boolean isPublishingStepsOnFinalise = false;
+    //Appends the time since the test's previous step to every message, e.g. "Logged in [+840 ms]". Defaults to -Dextent.step.timing.
+    public boolean isTimingSteps = Boolean.getBoolean("extent.step.timing");
+    private long slowStepMillis = Long.getLong("extent.step.slowMillis", 0L);
+    private final ConcurrentMap<ExtentTest, StepTimer> stepTimers = new ConcurrentHashMap<>();
+    //Snapshots of the last steps of each test, only written when the test fails. Defaults to -Dextent.evidence.size, 0 turns it off.
+    private int evidenceSize = EvidenceBuffer.DEFAULT_SIZE;
+    private final ConcurrentMap<ExtentTest, EvidenceBuffer> evidence = new ConcurrentHashMap<>();
+    //Tests whose evidence has been written for the current invocation. Their steps are not captured until discardEvidence() or finaliseTest().
+    private final Set<ExtentTest> evidenceWritten = ConcurrentHashMap.newKeySet();
+    private int inlineThreshold = StreamingFormatter.MAX_INLINE_LENGTH;
+    private Status minimumLevel = Status.INFO;
     private WebDriver driver = null;
 
     public ExtentReporter(WebDriver driver, TestInfo testInfo)
     {
         this.driver = driver;
         setUnitTestName(testInfo.getDisplayName().replaceAll("[()]", ""));
+        minimumLevel = LevelFilter.getMinimumLevel(getUnitTestName());
         setup();
     }
 
@@ -59,6 +71,7 @@ public class ExtentReporter //extends SeleniumSupport
     {
         this.driver = driver;
         setUnitTestName(unitTestName.replaceAll("[()]", ""));
+        minimumLevel = LevelFilter.getMinimumLevel(getUnitTestName());
     }
 
     public String getUnitTestName()
@@ -72,8 +85,12 @@ public class ExtentReporter //extends SeleniumSupport
         this.unitTestName = unitTestName;
     }
 
-    private static String _reportDirectory;
+    private static volatile String _reportDirectory;
 
+    /**
+     * Directory of the most recently set up report.
+     * With several reporters in one JVM, use getSession().getReportDirectory() for the directory owned by a specific reporter.
+     */
     public static String getReportDirectory()
     {
         return _reportDirectory;
@@ -84,43 +101,157 @@ public class ExtentReporter //extends SeleniumSupport
         _reportDirectory = dir;
     }
 
-    private void setOutputStream()
+    /**
+     * The session that owns this reporter's report directory, output streams and screenshot counter.
+     */
+    public ReportSession getSession()
     {
-        try
-        {
-            PrintStream fileStream = new PrintStream(getReportDirectory() + "Output.txt");
-            System.setOut(fileStream);
-        }
-        catch (Exception e)
-        {
+        return session;
+    }
 
-        }
+    /**
+     * Replaces the sink used for step messages, e.g. NullLogSink.INSTANCE to silence them.
+     */
+    public void setLogSink(LogSink logSink)
+    {
+        if (session == null) setup();
+        session.setLogSink(logSink);
+    }
+
+    /**
+     * Prints a step message through the session's LogSink. Output.txt when reporting is turned off.
+     */
+    private void log(String line)
+    {
+        if (session != null)
+            session.getLogSink().log(line);
+        else
+            System.out.println(line);
     }
 
     /**
      * Setup() uses the getUnitTestName() getter to create the report directory and initialize extent report objects.
+     * When ReportSessionManager's shared session is enabled, the reporter joins the JVM-wide session instead of creating its own folder.
      */
     public void setup()
     {
+        close();
 
-        setReportDirectory(System.getProperty("user.dir") + "\\Reports\\" + getUnitTestName() + "\\" + getCurTime() + "\\");
-        new File(getReportDirectory()).mkdirs();
-
-        if(isReportingTurnedOff)
+        if (ReportSessionManager.isSharedSessionEnabled())
+        {
+            session = ReportSessionManager.getSharedSession(isReportingTurnedOff);
+            isReportingTurnedOff = session.isReportingTurnedOff();
+        } else
         {
-            setOutputStream();
+            session = new ReportSession(ReportLayout.getReportsRoot().resolve(getUnitTestName()).resolve(getCurTime()), isReportingTurnedOff);
+        }
+        setReportDirectory(session.getReportDirectory());
+        report = session.getReport(getUnitTestName());
+    }
+
+    /**
+     * Writes everything still pending and releases the reporter's own session and its threads. The shared session is left open, see ReportSessionManager.
+     * ExtentListener calls this once the test class the reporter was used in has finished.
+     */
+    public void close()
+    {
+        if (session != null && !ReportSessionManager.isSharedSession(session)) session.close();
+    }
+
+    /**
+     * How often, in milliseconds, the background thread writes pending steps to the html report.
+     */
+    public void setFlushInterval(long flushIntervalMillis)
+    {
+        if (report != null) session.getFlushScheduler().setFlushInterval(flushIntervalMillis);
+    }
+
+    /**
+     * Number of pending steps that forces a background write of the html report before the interval elapses.
+     */
+    public void setFlushDirtyStepThreshold(int dirtyStepThreshold)
+    {
+        if (report != null) session.getFlushScheduler().setDirtyStepThreshold(dirtyStepThreshold);
+    }
+
+    /**
+     * Number of characters an XML/JSON payload or a table may take up in the html before it is written to a sidecar file in the Attachments folder.
+     * Defaults to -Dextent.inline.maxChars. Lower it to keep the report, and every flush of it, small.
+     */
+    public void setInlineThreshold(int maxInlineChars)
+    {
+        this.inlineThreshold = Math.max(0, maxInlineChars);
+    }
+
+    public int getInlineThreshold()
+    {
+        return inlineThreshold;
+    }
+
+    /**
+     * Reporting overhead recorded for this reporter's session when -Dextent.metrics=true. Written to metrics.json when the session closes.
+     */
+    public ReportMetrics getMetrics()
+    {
+        return metrics();
+    }
+
+    private ReportMetrics metrics()
+    {
+        return (session != null) ? session.getMetrics() : ReportMetrics.DISABLED;
+    }
+
+    private void addAttachmentBytes(Path attachment)
+    {
+        if (!metrics().isEnabled())
             return;
+        try
+        {
+            metrics().addBytesWritten(ReportMetrics.Output.ATTACHMENT, Files.size(attachment));
+        } catch (IOException e)
+        {//Only affects the metrics.
         }
+    }
+
+    /**
+     * Steps call this instead of report.flush(). The flush itself is coalesced by the ReportFlushScheduler.
+     */
+    private void requestFlush()
+    {
+        //Nothing reaches the model until the test is published, which marks the report dirty itself.
+        if (isPublishingStepsOnFinalise)
+            return;
+        session.getFlushScheduler().markDirty(report);
+    }
+
+    /**
+     * Writes all pending steps to the html report on the calling thread.
+     */
+    public void flushReport()
+    {
+        if (report != null) session.getFlushScheduler().flushNow(report);
+    }
+
+    /**
+     * Publishes the buffered steps of the current test into the report in one batch.
+     * ExtentListener calls this when a test passes or fails. Only has an effect when isPublishingStepsOnFinalise is set.
+     */
+    public void publishSteps()
+    {
+        publishSteps(getCurrentTestName());
+    }
 
-        report = new ExtentReports();
-        ExtentSparkReporter html = new ExtentSparkReporter(getReportDirectory() + "ExtentReport.html");
-        //https://stackoverflow.com/questions/53790432/how-to-enhance-the-image-size-of-the-screenshot-captured-for-extent-report
-        String css = ".r-img {width: 50%;}";
-        html.config().setCSS(css);
+    /**
+     * Publishes the buffered steps of testName into the report in one batch.
+     */
+    public void publishSteps(String testName)
+    {
+        if (isReportingTurnedOff || !isPublishingStepsOnFinalise)
+            return;
 
-        report.attachReporter(html);
-        report.setAnalysisStrategy(AnalysisStrategy.TEST);
-        report.flush();
+        ExtentTest test = extentTests.get(testName);
+        if (test != null && session.publishSteps(test) > 0)
+            session.getFlushScheduler().markDirty(report);
     }
 
     /**
@@ -137,19 +268,7 @@ public class ExtentReporter //extends SeleniumSupport
         if(isReportingTurnedOff)
             return null;
 
-        try
-        {
-            if (report == null) setup();
-            ExtentTest test = report.createTest(getUnitTestName());
-            System.out.println("[SUCCESS} Created test: " + getUnitTestName());
-
-            extentTests.add(test);
-            return test;
-        } catch (Exception e)
-        {
-            printError("Error thrown while trying to create new ExtentTest", e);
-            throw e;
-        }
+        return registerTest(getUnitTestName());
     }
 
     /**
@@ -160,15 +279,27 @@ public class ExtentReporter //extends SeleniumSupport
         if(isReportingTurnedOff)
             return null;
 
+        setUnitTestName(unitTestName);
+        return registerTest(unitTestName);
+    }
+
+    /**
+     * Atomically returns the registered test for testName, creating it in the report if it doesn't exist yet.
+     * Parallel threads asking for the same name always receive the same ExtentTest.
+     */
+    private ExtentTest registerTest(String testName)
+    {
         try
         {
-            setUnitTestName(unitTestName);
             if (report == null) setup();
-            ExtentTest test = report.createTest(unitTestName);
-            System.out.println("[SUCCESS} Created test: " + getUnitTestName());
-
-            extentTests.add(test);
-            return test;
+            return extentTests.computeIfAbsent(testName, name ->
+            {
+                ExtentTest[] test = new ExtentTest[1];
+                updateModel(() -> test[0] = report.createTest(name));
+                if (session.getJournal() != null) session.getJournal().testCreated(session.getReportKey(getUnitTestName()), test[0]);
+                log("[SUCCESS} Created test: " + name);
+                return test[0];
+            });
         } catch (Exception e)
         {
             printError("Error thrown while trying to create new ExtentTest", e);
@@ -178,8 +309,8 @@ public class ExtentReporter //extends SeleniumSupport
 
 
     /**
-     * List<ExtentTest> testList was added to facilitate reporting with parallel execution.
-     * Using Lambda, we find the correct test that matches the testName provided.
+     * extentTests is indexed by test name to facilitate reporting with parallel execution.
+     * We find the test that matches the testName provided with a single lookup.
      * If there's no match, we'll create the test and return that.
      */
     public ExtentTest getTest(String testName)
@@ -187,30 +318,306 @@ public class ExtentReporter //extends SeleniumSupport
         if(isReportingTurnedOff)
             return null;
 
-        if (report == null) setup();
-        if (extentTests.size() < 1)
+        long start = metrics().start();
+        ExtentTest test = extentTests.get(testName);
+        if (test == null) test = registerTest(testName);
+        metrics().record(ReportMetrics.Operation.GET_TEST, start);
+        return test;
+    }
+
+    private boolean isBufferingSteps()
+    {
+        return isVirtualThreadMode || isPublishingStepsOnFinalise;
+    }
+
+    private StepBuffer getStepBuffer(ExtentTest test)
+    {
+        return session.getStepBuffer(test, report, isPublishingStepsOnFinalise);
+    }
+
+    /**
+     * Changes the Extent model while holding the flush lock, so the flush thread never renders a report that is being changed.
+     */
+    private void updateModel(Runnable update)
+    {
+        ReportFlushScheduler flushScheduler = session.getFlushScheduler();
+        if (flushScheduler != null)
+            flushScheduler.runWithFlushLock(update);
+        else
+            update.run();
+    }
+
+    /**
+     * Adds a message to the test under the flush lock. When steps are buffered, it is only appended to the test's StepBuffer.
+     */
+    private void record(ExtentTest test, Status status, String message)
+    {
+        record(test, status, message, evidenceSize > 0);
+    }
+
+    private void record(ExtentTest test, Status status, String message, boolean isCapturingEvidence)
+    {
+        long start = metrics().start();
+        long lap = lap(test);
+        String timedMessage = withDuration(message, lap);
+        if (isBufferingSteps())
+            getStepBuffer(test).append(new Step(status, timedMessage, null, null));
+        else
+            updateModel(() -> test.log(status, timedMessage));
+        if (session.getJournal() != null) session.getJournal().step(test, status, timedMessage, null, null);
+        flagSlowStep(test, lap);
+        metrics().record(ReportMetrics.Operation.STEP, start);
+        if (isCapturingEvidence) captureEvidence(test, timedMessage);
+    }
+
+    /**
+     * Adds markup to the test under the flush lock. When steps are buffered, it is only appended to the test's StepBuffer.
+     */
+    private void record(ExtentTest test, Status status, Markup markup)
+    {
+        long start = metrics().start();
+        if (isBufferingSteps())
+            getStepBuffer(test).append(new Step(status, null, markup, null));
+        else
+            updateModel(() -> test.log(status, markup));
+        if (session.getJournal() != null) session.getJournal().step(test, status, null, markup.getMarkup(), null);
+        metrics().record(ReportMetrics.Operation.STEP, start);
+    }
+
+    /**
+     * Adds a message with a screenshot to the test under the flush lock. When steps are buffered, it is only appended to the test's StepBuffer.
+     */
+    private void record(ExtentTest test, Status status, String message, MediaEntityModelProvider media)
+    {
+        long start = metrics().start();
+        long lap = lap(test);
+        String timedMessage = withDuration(message, lap);
+        if (isBufferingSteps())
+            getStepBuffer(test).append(new Step(status, timedMessage, null, media));
+        else
+            updateModel(() -> test.log(status, timedMessage, media));
+        if (session.getJournal() != null) session.getJournal().step(test, status, timedMessage, null, media.getMedia().getPath());
+        flagSlowStep(test, lap);
+        metrics().record(ReportMetrics.Operation.STEP, start);
+    }
+
+    /**
+     * Nanoseconds since the test's previous step, or -1 when steps aren't timed.
+     * Only message steps are timed. The markup that follows a message within the same step is not.
+     */
+    private long lap(ExtentTest test)
+    {
+        if (!isTimingSteps && slowStepMillis <= 0)
+            return -1L;
+
+        StepTimer timer = stepTimers.get(test);
+        if (timer == null) timer = stepTimers.computeIfAbsent(test, key -> new StepTimer());
+        return timer.lap();
+    }
+
+    private String withDuration(String message, long lapNanos)
+    {
+        return (isTimingSteps && lapNanos >= 0) ? message + " [+" + (lapNanos / 1_000_000) + " ms]" : message;
+    }
+
+    /**
+     * The label is logged as INFO: timing is an annotation and must not change the test's status.
+     */
+    private void flagSlowStep(ExtentTest test, long lapNanos)
+    {
+        if (slowStepMillis > 0 && lapNanos >= slowStepMillis * 1_000_000)
+            record(test, Status.INFO, MarkupHelper.createLabel("Slow step: " + (lapNanos / 1_000_000) + " ms (threshold " + slowStepMillis + " ms)", ExtentColor.ORANGE));
+    }
+
+    /**
+     * Steps that take longer than this since the previous step of their test get an orange label. 0 turns it off.
+     * Defaults to -Dextent.step.slowMillis.
+     */
+    public void setSlowStepThreshold(long slowStepMillis)
+    {
+        this.slowStepMillis = slowStepMillis;
+    }
+
+    public long getSlowStepThreshold()
+    {
+        return slowStepMillis;
+    }
+
+    /**
+     * Number of snapshots, a screenshot and the page source, kept in memory for each test and written to the report only if it fails.
+     * A snapshot is taken after every message step. 0 turns it off. Defaults to -Dextent.evidence.size.
+     */
+    public void setEvidenceSize(int evidenceSize)
+    {
+        this.evidenceSize = Math.max(0, evidenceSize);
+    }
+
+    public int getEvidenceSize()
+    {
+        return evidenceSize;
+    }
+
+    /**
+     * Adds a snapshot of the browser to the test's EvidenceBuffer. Failures are only printed, evidence must never fail a step.
+     */
+    private void captureEvidence(ExtentTest test, String label)
+    {
+        if (driver == null)
+            return;
+        if (evidenceWritten.contains(test))
+            return;
+
+        long start = metrics().start();
+        try
+        {
+            byte[] screenshot = (driver instanceof TakesScreenshot) ? ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES) : null;
+            String pageSource = EvidenceBuffer.DEFAULT_PAGE_SOURCE ? driver.getPageSource() : null;
+            EvidenceBuffer buffer = evidence.get(test);
+            if (buffer == null) buffer = evidence.computeIfAbsent(test, key -> new EvidenceBuffer(evidenceSize));
+            buffer.add(label, screenshot, pageSource);
+        } catch (Exception e)
         {
-            return createTest(testName);
+            printError("Failed to capture evidence after '" + label + "'", e);
         }
+        metrics().record(ReportMetrics.Operation.SCREENSHOT, start);
+    }
 
-        List<ExtentTest> testList = extentTests.stream().filter(s -> s.getModel().getName().equals(testName)).collect(Collectors.toList());
+    /**
+     * Writes the snapshots kept for the current test to the report. ExtentListener calls this when a test fails.
+     */
+    public void writeEvidence()
+    {
+        writeEvidence(getCurrentTestName());
+    }
 
-        if (testList != null && !testList.isEmpty() && testList.size() > 0)
-        {
-            ExtentTest test = testList.get(0);
-            return (test != null) ? test : createTest(testName);
-        } else
+    /**
+     * Adds every snapshot kept for testName as an info step with its screenshot and a link to its page source, oldest first.
+     * Steps logged for the test afterwards, such as ExtentListener's failure lines, are not captured until discardEvidence() or finaliseTest().
+     */
+    public void writeEvidence(String testName)
+    {
+        if (isReportingTurnedOff || testName == null)
+            return;
+
+        ExtentTest test = extentTests.get(testName);
+        if (test == null)
+            return;
+        if (evidenceSize > 0) evidenceWritten.add(test);
+        EvidenceBuffer buffer = evidence.remove(test);
+        if (buffer == null)
+            return;
+
+        List<EvidenceBuffer.Snapshot> snapshots = buffer.drain();
+        for (int i = 0; i < snapshots.size(); i++)
         {
-            return createTest(testName);
+            EvidenceBuffer.Snapshot snapshot = snapshots.get(i);
+            String message = "Evidence " + (i + 1) + "/" + snapshots.size() + " - " + snapshot.getLabel();
+            try
+            {
+                if (snapshot.getScreenshot() != null)
+                {
+                    String relativePath = session.getRelativeRoot() + session.getScreenshotStore().store(snapshot.getScreenshot(), Status.FAIL, null);
+                    record(test, Status.INFO, message, MediaEntityBuilder.createScreenCaptureFromPath(relativePath).build());
+                } else
+                    record(test, Status.INFO, message, false);
+
+                String pageSource = snapshot.getPageSource();
+                Markup attachment = (pageSource != null) ? writeAttachment(pageSource, ".html") : null;
+                if (attachment != null)
+                    record(test, Status.INFO, attachment);
+            } catch (Exception e)
+            {
+                printError("Failed to write evidence '" + message + "'", e);
+            }
         }
+        log("[EVIDENCE] - " + snapshots.size() + " snapshots written for " + testName);
+        requestFlush();
     }
 
     /**
-     * This method dynamically retrieves the name of the current test running.
-     * It only works when an @Test method is running. If called in the @Before or @After tags, it will fail to return a name.
+     * Drops the snapshots kept for the current test without writing them, and captures the steps of its next invocation again.
+     * ExtentListener calls this when a test passes, and after the failure lines of a failed test.
+     */
+    public void discardEvidence()
+    {
+        String testName = getCurrentTestName();
+        if (isReportingTurnedOff || testName == null)
+            return;
+
+        ExtentTest test = extentTests.get(testName);
+        if (test != null)
+            dropEvidence(test);
+    }
+
+    private void dropEvidence(ExtentTest test)
+    {
+        evidence.remove(test);
+        evidenceWritten.remove(test);
+    }
+
+    /**
+     * Adds the step latency percentiles of the current test to it. ExtentListener calls this when a test passes or fails.
+     */
+    public void recordStepTimings()
+    {
+        recordStepTimings(getCurrentTestName());
+    }
+
+    /**
+     * Adds a table with the number of steps and the p50/p90/p99/max time between them to testName, then forgets its timings.
+     * Does nothing unless steps are timed.
+     */
+    public void recordStepTimings(String testName)
+    {
+        if (isReportingTurnedOff || testName == null)
+            return;
+
+        ExtentTest test = extentTests.get(testName);
+        StepTimer timer = (test != null) ? stepTimers.remove(test) : null;
+        if (timer == null || timer.getCount() == 0)
+            return;
+
+        long[] laps = timer.getSortedLaps();
+        String[][] table = {
+                {"Steps", "p50", "p90", "p99", "Max"},
+                {String.valueOf(laps.length), toMillis(StepTimer.percentile(laps, 0.50)), toMillis(StepTimer.percentile(laps, 0.90)),
+                        toMillis(StepTimer.percentile(laps, 0.99)), toMillis(laps[laps.length - 1])}
+        };
+        record(test, Status.INFO, MarkupHelper.createTable(table));
+    }
+
+    private static String toMillis(long nanos)
+    {
+        return (nanos / 1_000_000) + " ms";
+    }
+
+    /**
+     * Steps below the minimum level are dropped before any of their work is done. INFO, i.e. everything, unless -Dextent.level says otherwise.
+     * See LevelFilter for the order of the levels.
+     */
+    public void setMinimumLevel(Status minimumLevel)
+    {
+        this.minimumLevel = minimumLevel;
+    }
+
+    public Status getMinimumLevel()
+    {
+        return minimumLevel;
+    }
+
+    /**
+     * True when a step of status is at or above the minimum level. It is then recorded in the report or, when reporting is turned off, in Output.txt.
+     */
+    public boolean isEnabled(Status status)
+    {
+        return LevelFilter.isAtLeast(status, minimumLevel);
+    }
+
+    /**
+     * This method retrieves the name of the current test running.
+     * For Parallel Execution, ExtentListener binds the @Test method name to the executing thread (see TestContext) before the test runs.
+     * If called in the @Before or @After tags, or without the ExtentListener registered, no name is bound.
      * In those instances, the getUnitTestName() method which is always set in the @BeforeAll, will be defaulted to.
-     * This method is necessary for Parallel Execution.
-     * https://stackoverflow.com/questions/473401/get-name-of-currently-executing-test-in-junit-4 | https://stackoverflow.com/a/4566953
      */
     public String getCurrentTestName()
     {
@@ -220,209 +627,405 @@ public class ExtentReporter //extends SeleniumSupport
         if (!isTestParallel)
         {
             return getUnitTestName();
-        } else
+        }
+
+        long start = metrics().start();
+        String testName = TestContext.getCurrentTestName();
+        if (testName == null || testName.isEmpty())
+        {//If all else fails, return the UnitTestClassName provided in the @BeforeALL.
+            testName = getUnitTestName();
+        }
+        metrics().record(ReportMetrics.Operation.CURRENT_TEST_NAME, start);
+        return testName;
+    }
+
+    /**
+     * Pass message added to the current test in the report.
+     */
+    public void stepPassed(String message)
+    {
+        if (!isEnabled(Status.PASS)) return;
+
+        if(isReportingTurnedOff)
         {
+            log(getCurDateTime() + "[SUCCESS] - " + message);
+            return;
+        }
 
-            pause(150);//added to assist with Parallel Execution > ConcurrentModificationException
-            String testName = null;
-            StackTraceElement[] trace = Thread.currentThread().getStackTrace();
-            for (int i = trace.length - 1; i > 0; --i)
-            {
-                StackTraceElement ste = trace[i];
-                try
-                {
-                    Class<?> cls = Class.forName(ste.getClassName());
-                    Method method = cls.getDeclaredMethod(ste.getMethodName());
-                    Test annotation = method.getAnnotation(Test.class);
-                    if (annotation != null)
-                    {
-//                    testName = ste.getClassName() + "." + ste.getMethodName();
-                        testName = ste.getMethodName();
-                        break;
-                    }
-                    //The below exceptions are expected to be thrown while cycling through these objects.
-                } catch (ClassNotFoundException e)
-                {
-                } catch (NoSuchMethodException e)
-                {
-                } catch (SecurityException e)
-                {
-                }
-            }
-            if (testName != null && !testName.isEmpty())
-            {
-                return testName;
-            } else
-            {//If all else fails, return the UnitTestClassName provided in the @BeforeALL.
-                // This will be required for @TestFactory unit tests. Commenting out println until it is required.
-//            System.out.println("[REPORTING] Unable to perform Reporting.getCurrentTestName() > Defaulting to getUnitTestName(): " + getUnitTestName());
-                return getUnitTestName();
-            }
+        ExtentTest test = getTest(getCurrentTestName());
+        record(test, Status.PASS, message);
+        log("[SUCCESS] - " + message);
+        requestFlush();
+    }
+
+    /**
+     * Info message added to the current test in the report.
+     */
+    public void stepInfo(String message)
+    {
+        if (!isEnabled(Status.INFO)) return;
+
+        if(isReportingTurnedOff)
+        {
+            log(getCurDateTime() + "[INFO] - " + message);
+            return;
         }
+        ExtentTest test = getTest(getCurrentTestName());
+        record(test, Status.INFO, message);
+        log("[INFO] - " + message);
+        requestFlush();
+    }
+
+    /**
+     * Warning message added to the current test in the report.
+     */
+    public void stepWarning(String message)
+    {
+        if (!isEnabled(Status.WARNING)) return;
+
+        if(isReportingTurnedOff)
+        {
+            log(getCurDateTime() + "[WARN] - " + message);
+            return;
+        }
+
+        ExtentTest test = getTest(getCurrentTestName());
+        record(test, Status.WARNING, message);
+        log("[WARN] - " + message);
+        requestFlush();
+    }
+
+    /**
+     * Failed message added to the current test in the report.
+     */
+    public void stepFailed(String message)
+    {
+        if (!isEnabled(Status.FAIL)) return;
+
+        if(isReportingTurnedOff)
+        {
+            log(getCurDateTime() + "[FAIL] - " + message);
+            return;
+        }
+
+        ExtentTest test = getTest(getCurrentTestName());
+        record(test, Status.FAIL, message);
+        log("[FAIL] - " + message);
+        requestFlush();
+    }
+
+    /**
+     * Fatal message added to the current test in the report.
+     */
+    public void stepFatal(String message)
+    {
+        if (!isEnabled(Status.FATAL)) return;
+
+        if(isReportingTurnedOff)
+        {
+            log(getCurDateTime() + "[FATAL] - " + message);
+            return;
+        }
+
+        ExtentTest test = getTest(getCurrentTestName());
+        record(test, Status.FATAL, message);
+        log("[FATAL] - " + message);
+        requestFlush();
+    }
+
+    /**
+     * Pass message added to the current test in the report.
+     * As well as an xml code block that get formatted.
+     */
+    public void stepPassedWithXML(String message, String xmlCodeBlock)
+    {
+        stepWithCodeBlock(Status.PASS, message, xmlCodeBlock, CodeLanguage.XML);
+    }
+
+    /**
+     * Pass message added to the current test in the report.
+     * As well as a JSON code block that get formatted.
+     */
+    public void stepPassedWithJSON(String message, String jsonCodeBlock)
+    {
+        stepWithCodeBlock(Status.PASS, message, jsonCodeBlock, CodeLanguage.JSON);
+    }
+
+    /**
+     * Fail message added to the current test in the report.
+     * As well as an xml code block that get formatted.
+     */
+    public void stepFailedWithXML(String message, String xmlCodeBlock)
+    {
+        stepWithCodeBlock(Status.FAIL, message, xmlCodeBlock, CodeLanguage.XML);
+    }
+
+    /**
+     * Fail message added to the current test in the report.
+     * As well as a JSON code block that get formatted.
+     */
+    public void stepFailedWithJSON(String message, String jsonCodeBlock)
+    {
+        stepWithCodeBlock(Status.FAIL, message, jsonCodeBlock, CodeLanguage.JSON);
+    }
+
+    /**
+     * Formatted code blocks longer than the inline threshold are written to a sidecar file in the Attachments folder.
+     * The step then only holds a preview and a viewer that loads the file when it is expanded.
+     */
+    private void stepWithCodeBlock(Status status, String message, String codeBlock, CodeLanguage language)
+    {
+        if (!isEnabled(status)) return;
+
+        String label = (status == Status.PASS) ? "[SUCCESS]" : "[FAIL]";
+        if(isReportingTurnedOff)
+        {
+            log(getCurDateTime() + label + " - " + message);
+            log(codeBlock);
+            return;
+        }
+
+        ExtentTest test = getTest(getCurrentTestName());
+        record(test, status, message);
+
+        String formatted = (language == CodeLanguage.XML) ? getPrettyFormatXML(codeBlock, 2) : getPrettyFormatJSON(codeBlock);
+        String extension = (language == CodeLanguage.XML) ? ".xml" : ".json";
+        Markup attachment = (formatted.length() > inlineThreshold) ? writeAttachment(formatted, extension) : null;
+        record(test, status, (attachment != null) ? attachment : MarkupHelper.createCodeBlock(formatted, language));
+
+        log(label + " - " + message);
+        requestFlush();
+    }
+
+    /**
+     * Writes content to a new file in the Attachments folder. Returns null if the file can't be written, so the content is embedded instead.
+     */
+    private Markup writeAttachment(String content, String extension)
+    {
+        String attachmentName = session.nextAttachmentName(extension);
+        try
+        {
+            byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+            ReportLayout.write(session.resolve(attachmentName), bytes);
+            metrics().addBytesWritten(ReportMetrics.Output.ATTACHMENT, bytes.length);
+            return new AttachmentMarkup(session.getRelativeRoot() + attachmentName, "Open " + extension.substring(1) + " attachment", content);
+        } catch (IOException e)
+        {
+            printError("Failed to write attachment '" + attachmentName + "'", e);
+            return null;
+        }
+    }
+
+    /**
+     * Pass message added to the current test in the report.
+     * As well as an xml code block that is formatted while it is read.
+     * Formatted payloads above the inline threshold are linked as an attachment instead of being embedded.
+     */
+    public void stepPassedWithXML(String message, Reader xml)
+    {
+        stepWithStreamedCodeBlock(Status.PASS, message, xml, CodeLanguage.XML);
+    }
+
+    /**
+     * Pass message added to the current test in the report.
+     * As well as the xml file's content, formatted while it is read.
+     */
+    public void stepPassedWithXML(String message, Path xmlFile)
+    {
+        stepWithStreamedCodeBlock(Status.PASS, message, xmlFile, CodeLanguage.XML);
     }
 
     /**
-     * Pass message added to the current test in the report.
+     * Fail message added to the current test in the report.
+     * As well as an xml code block that is formatted while it is read.
      */
-    public void stepPassed(String message)
+    public void stepFailedWithXML(String message, Reader xml)
     {
-        if(isReportingTurnedOff)
-        {
-            System.out.println(getCurDateTime() + "[SUCCESS] - " + message);
-            return;
-        }
-
-        ExtentTest test = getTest(getCurrentTestName());
-        test.pass(message);
-        System.out.println("[SUCCESS] - " + message);
-        report.flush();
+        stepWithStreamedCodeBlock(Status.FAIL, message, xml, CodeLanguage.XML);
     }
 
     /**
-     * Info message added to the current test in the report.
+     * Fail message added to the current test in the report.
+     * As well as the xml file's content, formatted while it is read.
      */
-    public void stepInfo(String message)
+    public void stepFailedWithXML(String message, Path xmlFile)
     {
-        if(isReportingTurnedOff)
-        {
-            System.out.println(getCurDateTime() + "[INFO] - " + message);
-            return;
-        }
-        ExtentTest test = getTest(getCurrentTestName());
-        test.info(message);
-        System.out.println("[INFO] - " + message);
-        report.flush();
+        stepWithStreamedCodeBlock(Status.FAIL, message, xmlFile, CodeLanguage.XML);
     }
 
     /**
-     * Warning message added to the current test in the report.
+     * Pass message added to the current test in the report.
+     * As well as a JSON code block that is formatted while it is read.
+     * Formatted payloads above the inline threshold are linked as an attachment instead of being embedded.
      */
-    public void stepWarning(String message)
+    public void stepPassedWithJSON(String message, Reader json)
     {
-        if(isReportingTurnedOff)
-        {
-            System.out.println(getCurDateTime() + "[WARN] - " + message);
-            return;
-        }
-
-        ExtentTest test = getTest(getCurrentTestName());
-        test.warning(message);
-        System.out.println("[WARN] - " + message);
-        report.flush();
+        stepWithStreamedCodeBlock(Status.PASS, message, json, CodeLanguage.JSON);
     }
 
     /**
-     * Failed message added to the current test in the report.
+     * Pass message added to the current test in the report.
+     * As well as the JSON file's content, formatted while it is read.
      */
-    public void stepFailed(String message)
+    public void stepPassedWithJSON(String message, Path jsonFile)
     {
-        if(isReportingTurnedOff)
-        {
-            System.out.println(getCurDateTime() + "[FAIL] - " + message);
-            return;
-        }
+        stepWithStreamedCodeBlock(Status.PASS, message, jsonFile, CodeLanguage.JSON);
+    }
 
-        ExtentTest test = getTest(getCurrentTestName());
-        test.fail(message);
-        System.out.println("[FAIL] - " + message);
-        report.flush();
+    /**
+     * Fail message added to the current test in the report.
+     * As well as a JSON code block that is formatted while it is read.
+     */
+    public void stepFailedWithJSON(String message, Reader json)
+    {
+        stepWithStreamedCodeBlock(Status.FAIL, message, json, CodeLanguage.JSON);
     }
 
     /**
-     * Fatal message added to the current test in the report.
+     * Fail message added to the current test in the report.
+     * As well as the JSON file's content, formatted while it is read.
      */
-    public void stepFatal(String message)
+    public void stepFailedWithJSON(String message, Path jsonFile)
     {
-        if(isReportingTurnedOff)
+        stepWithStreamedCodeBlock(Status.FAIL, message, jsonFile, CodeLanguage.JSON);
+    }
+
+    private void stepWithStreamedCodeBlock(Status status, String message, Path file, CodeLanguage language)
+    {
+        if (!isEnabled(status)) return;
+
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8))
         {
-            System.out.println(getCurDateTime() + "[FATAL] - " + message);
-            return;
+            stepWithStreamedCodeBlock(status, message, reader, language);
+        } catch (IOException e)
+        {
+            printError("Failed to read '" + file + "'", e);
+            stepFailed(message + " - failed to read " + file + " - " + e.getMessage());
         }
-
-        ExtentTest test = getTest(getCurrentTestName());
-        test.fatal(message);
-        System.out.println("[FATAL] - " + message);
-        report.flush();
     }
 
     /**
-     * Pass message added to the current test in the report.
-     * As well as an xml code block that get formatted.
+     * Streams the payload through the StreamingFormatter into a SpillingWriter.
+     * Nothing but the inline part of the formatted payload is held in memory. Larger payloads end up in the session's Attachments folder.
+     * The raw payload is teed into a second SpillingWriter. When it can't be formatted, the raw text is reported in full instead.
      */
-    public void stepPassedWithXML(String message, String xmlCodeBlock)
+    private void stepWithStreamedCodeBlock(Status status, String message, Reader codeBlock, CodeLanguage language)
     {
+        if (!isEnabled(status)) return;
+
+        String label = (status == Status.PASS) ? "[SUCCESS]" : "[FAIL]";
         if(isReportingTurnedOff)
         {
-            System.out.println(getCurDateTime() + "[SUCCESS] - " + message);
-            System.out.println(xmlCodeBlock);
+            log(getCurDateTime() + label + " - " + message);
+            copy(codeBlock);
             return;
         }
 
         ExtentTest test = getTest(getCurrentTestName());
-        test.pass(message);
-        test.pass(MarkupHelper.createCodeBlock(getPrettyFormatXML(xmlCodeBlock, 2), CodeLanguage.XML));
-        System.out.println("[SUCCESS] - " + message);
-        report.flush();
+        record(test, status, message);
+
+        String extension = (language == CodeLanguage.XML) ? ".xml" : ".json";
+        String[] attachmentName = new String[1];
+        SpillingWriter writer = new SpillingWriter(inlineThreshold, () ->
+        {
+            attachmentName[0] = session.nextAttachmentName(extension);
+            return session.resolve(attachmentName[0]);
+        });
+        String[] rawAttachmentName = new String[1];
+        SpillingWriter raw = new SpillingWriter(inlineThreshold, () ->
+        {
+            rawAttachmentName[0] = session.nextAttachmentName(extension);
+            return session.resolve(rawAttachmentName[0]);
+        });
+        TeeReader input = new TeeReader(codeBlock, raw);
+
+        boolean isFormatted = false;
+        long start = metrics().start();
+        try
+        {
+            if (language == CodeLanguage.XML)
+                StreamingFormatter.formatXML(input, writer, 2);
+            else
+                StreamingFormatter.formatJSON(input, writer);
+            isFormatted = true;
+        } catch (Exception e)
+        {//The raw payload is reported instead, so the rest of it is read into the copy.
+            log("Failed to make " + extension.substring(1) + " input pretty - " + e.getMessage());
+            drain(input);
+        } finally
+        {
+            close(writer, attachmentName[0]);
+            close(raw, rawAttachmentName[0]);
+            metrics().record((language == CodeLanguage.XML) ? ReportMetrics.Operation.FORMAT_XML : ReportMetrics.Operation.FORMAT_JSON, start);
+        }
+
+        SpillingWriter result = isFormatted ? writer : raw;
+        deleteSpillFile(isFormatted ? raw : writer);
+        if (result.isSpilled())
+        {
+            addAttachmentBytes(result.getSpillFile());
+            String name = isFormatted ? attachmentName[0] : rawAttachmentName[0];
+            String linkText = "Open " + (isFormatted ? "" : "unformatted ") + extension.substring(1) + " attachment";
+            record(test, status, new AttachmentMarkup(session.getRelativeRoot() + name, linkText, result.getPreview()));
+        } else if (isFormatted)
+            record(test, status, MarkupHelper.createCodeBlock(writer.getInlineContent(), language));
+        else
+            record(test, status, MarkupHelper.createCodeBlock(AttachmentMarkup.escape(raw.getInlineContent())));
+
+        log(label + " - " + message);
+        requestFlush();
     }
 
-    /**
-     * Pass message added to the current test in the report.
-     * As well as a JSON code block that get formatted.
-     */
-    public void stepPassedWithJSON(String message, String jsonCodeBlock)
+    private void drain(TeeReader input)
     {
-        if(isReportingTurnedOff)
+        try
         {
-            System.out.println(getCurDateTime() + "[SUCCESS] - " + message);
-            System.out.println(jsonCodeBlock);
-            return;
+            input.drain();
+        } catch (IOException e)
+        {
+            printError("Failed to read the rest of the input", e);
         }
-
-        ExtentTest test = getTest(getCurrentTestName());
-        test.pass(message);
-        test.pass(MarkupHelper.createCodeBlock(getPrettyFormatJSON(jsonCodeBlock), CodeLanguage.JSON));
-        System.out.println("[SUCCESS] - " + message);
-        report.flush();
     }
 
-    /**
-     * Fail message added to the current test in the report.
-     * As well as an xml code block that get formatted.
-     */
-    public void stepFailedWithXML(String message, String xmlCodeBlock)
+    private void close(SpillingWriter writer, String attachmentName)
     {
-        if(isReportingTurnedOff)
+        try
         {
-            System.out.println(getCurDateTime() + "[FAIL] - " + message);
-            System.out.println(xmlCodeBlock);
-            return;
+            writer.close();
+        } catch (IOException e)
+        {
+            printError("Failed to write attachment '" + attachmentName + "'", e);
         }
+    }
 
-        ExtentTest test = getTest(getCurrentTestName());
-        test.fail(message);
-        test.fail(MarkupHelper.createCodeBlock(getPrettyFormatXML(xmlCodeBlock, 2), CodeLanguage.XML));
-        System.out.println("[FAIL] - " + message);
-        report.flush();
+    private void deleteSpillFile(SpillingWriter writer)
+    {
+        try
+        {
+            if (writer.isSpilled()) Files.deleteIfExists(writer.getSpillFile());
+        } catch (IOException e)
+        {
+            printError("Failed to delete '" + writer.getSpillFile() + "'", e);
+        }
     }
 
     /**
-     * Fail message added to the current test in the report.
-     * As well as a JSON code block that get formatted.
+     * Copies a Reader line by line to the log when reporting is turned off, without reading it into memory.
      */
-    public void stepFailedWithJSON(String message, String jsonCodeBlock)
+    private void copy(Reader reader)
     {
-        if(isReportingTurnedOff)
+        try
         {
-            System.out.println(getCurDateTime() + "[FAIL] - " + message);
-            System.out.println(jsonCodeBlock);
-            return;
+            BufferedReader lines = new BufferedReader(reader);
+            String line;
+            while ((line = lines.readLine()) != null)
+            {
+                log(line);
+            }
+        } catch (IOException e)
+        {
+            printError("Failed to print code block", e);
         }
-
-        ExtentTest test = getTest(getCurrentTestName());
-        test.fail(message);
-        test.fail(MarkupHelper.createCodeBlock(getPrettyFormatJSON(jsonCodeBlock), CodeLanguage.JSON));
-        System.out.println("[FAIL] - " + message);
-        report.flush();
     }
 
     /**
@@ -437,43 +1040,7 @@ public class ExtentReporter //extends SeleniumSupport
         List<ArrayList<String>> tableList = new ArrayList<>();
         ListOfStringDataWithValues.forEach(s -> tableList.add(new ArrayList<String>(Arrays.asList(s.getKey(), s.getValue()))));
          */
-
-
-        if(isReportingTurnedOff)
-        {
-            System.out.println(getCurDateTime() + "[SUCCESS] - " + message);
-            for(int i=0; i<headers.length; i++)
-            {
-                System.out.println(headers[i]);
-                tableList.get(i).stream().forEach(x -> System.out.println(x));
-            }
-            return;
-        }
-
-        try
-        {
-            //Adding Headers into tableList
-            ArrayList headerList = new ArrayList();
-            for (String header : headers)
-            {
-                headerList.add(header);
-            }
-            tableList.add(0, headerList);
-
-            //Creating 2D Array table
-            String[][] tableArray = convertListToTable(tableList);
-            if (tableArray == null) throw new NullPointerException("Failed to convert List to Table");
-
-            ExtentTest test = getTest(getCurrentTestName());
-            test.pass(message);
-            test.pass(MarkupHelper.createTable(tableArray));
-            System.out.println("[SUCCESS] - " + message);
-            report.flush();
-        } catch (Exception e)
-        {
-            stepFailed("Failed to produce Table in extent Report - " + e.getMessage());
-            throw e;
-        }
+        stepPassedWithTable(message, tableList, Arrays.asList(headers));
     }
 
     /**
@@ -483,64 +1050,111 @@ public class ExtentReporter //extends SeleniumSupport
      */
     public void stepPassedWithTable(String message, List<ArrayList<String>> tableList, ArrayList<String> headerList)
     {//http://extentreports.com/docs/versions/4/java/
-        /*
-        Example of populating a List of ArrayList
-        List<ArrayList<String>> tableList = new ArrayList<>();
-        ListOfStringDataWithValues.forEach(s -> tableList.add(new ArrayList<String>(Arrays.asList(s.getKey(), s.getValue()))));
-         */
+        stepPassedWithTable(message, (Iterable<? extends List<String>>) tableList, headerList);
+    }
+
+    /**
+     * Pass message added to the current test in the report.
+     * As well as a Table block that is rendered row by row. The caller's rows are never modified.
+     * Tables longer than StreamingTable.DEFAULT_MAX_INLINE_ROWS rows, or the inline threshold, embed their first rows and link the full table as a csv attachment.
+     */
+    public void stepPassedWithTable(String message, Iterable<? extends List<String>> rows, List<String> headers)
+    {
+        stepPassedWithTable(message, rows.iterator(), headers);
+    }
 
+    /**
+     * Pass message added to the current test in the report.
+     * As well as a Table block that is rendered from the stream as it is consumed.
+     */
+    public void stepPassedWithTable(String message, Stream<? extends List<String>> rows, List<String> headers)
+    {
+        stepPassedWithTable(message, rows.iterator(), headers);
+    }
 
-        if(isReportingTurnedOff)
+    /**
+     * Pass message added to the current test in the report.
+     * As well as a Table block that is rendered from the cursor (e.g. RowCursor.of(resultSet)) one row at a time.
+     */
+    public void stepPassedWithTable(String message, RowCursor rows, List<String> headers)
+    {
+        stepPassedWithTable(message, new Iterator<List<String>>()
         {
-            System.out.println(getCurDateTime() + "[SUCCESS] - " + message);
-            for(int i=0; i<headerList.size(); i++)
+            private Boolean hasNext;
+
+            @Override
+            public boolean hasNext()
+            {
+                if (hasNext == null) hasNext = rows.next();
+                return hasNext;
+            }
+
+            @Override
+            public List<String> next()
             {
-                System.out.println(headerList.get(i));
-                tableList.get(i).stream().forEach(x -> System.out.println(x));
+                if (!hasNext()) throw new NoSuchElementException();
+                hasNext = null;
+
+                List<String> row = new ArrayList<>(rows.getColumnCount());
+                for (int column = 1; column <= rows.getColumnCount(); column++)
+                {
+                    row.add(rows.getString(column));
+                }
+                return row;
             }
+        }, headers);
+    }
+
+    private void stepPassedWithTable(String message, Iterator<? extends List<String>> rows, List<String> headers)
+    {
+        if (!isEnabled(Status.PASS)) return;
+
+        if(isReportingTurnedOff)
+        {
+            log(getCurDateTime() + "[SUCCESS] - " + message);
+            if (headers != null && !headers.isEmpty()) log(String.join(" | ", headers));
+            rows.forEachRemaining(row -> log(String.join(" | ", row)));
             return;
         }
 
+        long start = metrics().start();
+        String[] attachmentName = new String[1];
         try
         {
-            //Adding Headers into tableList
-            tableList.add(0, headerList);
-
-            //Creating 2D Array table
-            String[][] tableArray = convertListToTable(tableList);
-            if (tableArray == null) throw new NullPointerException("Failed to convert List to Table");
+            StreamingTable table = fillTable(rows, headers, attachmentName);
+            if (table.isSpilled()) addAttachmentBytes(table.getCsvFile());
+            metrics().record(ReportMetrics.Operation.TABLE, start);
 
             ExtentTest test = getTest(getCurrentTestName());
-            test.pass(message);
-            test.pass(MarkupHelper.createTable(tableArray));
-            System.out.println("[SUCCESS] - " + message);
-            report.flush();
+            record(test, Status.PASS, message);
+            record(test, Status.PASS, table.getMarkup());
+            if (table.isSpilled())
+                record(test, Status.PASS, new AttachmentMarkup(session.getRelativeRoot() + attachmentName[0], "Open full table (" + table.getRowCount() + " rows) as csv"));
+            log("[SUCCESS] - " + message);
+            requestFlush();
         } catch (Exception e)
         {
             stepFailed("Failed to produce Table in extent Report - " + e.getMessage());
-            throw e;
+            throw (e instanceof RuntimeException) ? (RuntimeException) e : new IllegalStateException(e);
         }
     }
 
     /**
-     * This method is created to allow us to convert a List of ArrayList into a 2D String Array.
-     * This is necessary due to Extent Reports only supporting 2D arrays for the table markup.
+     * Adds every row to a new StreamingTable. The table is returned closed, so its csv attachment, if any, is complete.
      */
-    private String[][] convertListToTable(List<ArrayList<String>> list)
-    {//https://stackoverflow.com/questions/10043209/convert-arraylist-into-2d-array-containing-varying-lengths-of-arrays
-        try
+    private StreamingTable fillTable(Iterator<? extends List<String>> rows, List<String> headers, String[] attachmentName) throws IOException
+    {
+        try (StreamingTable table = new StreamingTable(headers, StreamingTable.DEFAULT_MAX_INLINE_ROWS, inlineThreshold, () ->
+        {
+            attachmentName[0] = session.nextAttachmentName(".csv");
+            return session.resolve(attachmentName[0]);
+        }))
         {
-            String[][] array = new String[list.size()][];
-            for (int i = 0; i < list.size(); i++)
+            while (rows.hasNext())
             {
-                ArrayList<String> row = list.get(i);
-                array[i] = row.toArray(new String[row.size()]);
+                table.addRow(rows.next());
             }
-            return array;
-        } catch (Exception e)
-        {
-            stepFailed("Failed to convert List to table - " + e.getMessage());
-            throw e;
+            return table;
         }
     }
 
@@ -549,17 +1163,19 @@ public class ExtentReporter //extends SeleniumSupport
      */
     public void stepPassedWithLabel(String label, ExtentColor color)
     {
+        if (!isEnabled(Status.PASS)) return;
+
         if(isReportingTurnedOff)
         {
-            System.out.println(getCurDateTime() + "[SUCCESS] - " + label);
+            log(getCurDateTime() + "[SUCCESS] - " + label);
             return;
         }
 
         ExtentTest test = getTest(getCurrentTestName());
-        test.pass(MarkupHelper.createLabel(label, color));
-        System.out.println("[SUCCESS] - " + label);
+        record(test, Status.PASS, MarkupHelper.createLabel(label, color));
+        log("[SUCCESS] - " + label);
 
-        report.flush();
+        requestFlush();
     }
 
     /**
@@ -568,26 +1184,15 @@ public class ExtentReporter //extends SeleniumSupport
      */
     public void stepPassedWithScreenshot(String message)
     {
-        if(isReportingTurnedOff)
-        {
-            System.out.println(getCurDateTime() + "[SUCCESS] - " + message);
-            return;
-        }
-
-        String screenshotRelativePath = takeScreenshot(true);
-        ExtentTest test = getTest(getCurrentTestName());
-        try
-        {
-            test.pass(message, MediaEntityBuilder.createScreenCaptureFromPath(screenshotRelativePath).build());
-
-        } catch (Exception e)
-        {//Screenshots may fail when automating IE. Does not mean there is a test failure.
-            printError("Failed Capturing Screenshot for message '" + message + "'", e);
-            test.pass(message + " - screenshot capture failure");
-        }
+        stepWithScreenshot(Status.PASS, "[SUCCESS] - ", message, null);
+    }
 
-        System.out.println(message);
-        report.flush();
+    /**
+     * Pass message added to the current test in the report with a screenshot of element added in-line.
+     */
+    public void stepPassedWithScreenshot(String message, WebElement element)
+    {
+        stepWithScreenshot(Status.PASS, "[SUCCESS] - ", message, element);
     }
 
     /**
@@ -596,26 +1201,15 @@ public class ExtentReporter //extends SeleniumSupport
      */
     public void stepFailedWithScreenshot(String message)
     {
-        if(isReportingTurnedOff)
-        {
-            System.out.println(getCurDateTime() + "[Failed] - " + message);
-            return;
-        }
-        String screenshotRelativePath = takeScreenshot(false);
-
-        ExtentTest test = getTest(getCurrentTestName());
-        try
-        {
-            test.fail(message, MediaEntityBuilder.createScreenCaptureFromPath(screenshotRelativePath).build());
-
-        } catch (Exception e)
-        {
-            printError("Failed Capturing Screenshot for message '" + message + "'", e);
-            test.fail(message + " - screenshot capture failure");
-        }
+        stepWithScreenshot(Status.FAIL, "[Failed] - ", message, null);
+    }
 
-        System.out.println(message);
-        report.flush();
+    /**
+     * Failed message added to the current test in the report with a screenshot of element added in-line.
+     */
+    public void stepFailedWithScreenshot(String message, WebElement element)
+    {
+        stepWithScreenshot(Status.FAIL, "[Failed] - ", message, element);
     }
 
     /**
@@ -624,26 +1218,7 @@ public class ExtentReporter //extends SeleniumSupport
      */
     public void stepWarningWithScreenshot(String message)
     {
-        if(isReportingTurnedOff)
-        {
-            System.out.println(getCurDateTime() + "[WARN] - " + message);
-            return;
-        }
-
-        String screenshotRelativePath = takeScreenshot(true);
-        ExtentTest test = getTest(getCurrentTestName());
-        try
-        {
-            test.warning(message, MediaEntityBuilder.createScreenCaptureFromPath(screenshotRelativePath).build());
-
-        } catch (Exception e)
-        {
-            printError("Failed Capturing Screenshot for message '" + message + "'", e);
-            test.warning(message + " - screenshot capture failure");
-        }
-
-        System.out.println(message);
-        report.flush();
+        stepWithScreenshot(Status.WARNING, "[WARN] - ", message, null);
     }
 
     /**
@@ -652,26 +1227,33 @@ public class ExtentReporter //extends SeleniumSupport
      */
     public void stepSkipWithScreenshot(String message)
     {
+        stepWithScreenshot(Status.SKIP, "[SKIP] - ", message, null);
+    }
+
+    private void stepWithScreenshot(Status status, String offPrefix, String message, WebElement element)
+    {
+        if (!isEnabled(status)) return;
+
         if(isReportingTurnedOff)
         {
-            System.out.println(getCurDateTime() + "[SKIP] - " + message);
+            log(getCurDateTime() + offPrefix + message);
             return;
         }
-        String screenshotRelativePath = takeScreenshot(true);
 
+        String screenshotRelativePath = takeScreenshot(status, element);
         ExtentTest test = getTest(getCurrentTestName());
         try
         {
-            test.skip(message, MediaEntityBuilder.createScreenCaptureFromPath(screenshotRelativePath).build());
+            record(test, status, message, MediaEntityBuilder.createScreenCaptureFromPath(screenshotRelativePath).build());
 
         } catch (Exception e)
-        {
+        {//Screenshots may fail when automating IE. Does not mean there is a test failure.
             printError("Failed Capturing Screenshot for message '" + message + "'", e);
-            test.skip(message + " - screenshot capture failure");
+            record(test, status, message + " - screenshot capture failure");
         }
 
-        System.out.println(message);
-        report.flush();
+        log(message);
+        requestFlush();
     }
 
     /**
@@ -681,14 +1263,18 @@ public class ExtentReporter //extends SeleniumSupport
     {
         if(isReportingTurnedOff)
         {
-            System.out.println(getCurDateTime() + "Test Complete");
+            log(getCurDateTime() + "Test Complete");
             return;
         }
 
         ExtentTest test = getTest(getUnitTestName());
-        test.pass("Test Complete!");
-        System.out.println("[COMPLETE] - Test Complete");
-        report.flush();
+        record(test, Status.PASS, "Test Complete!");
+        dropEvidence(test);
+        recordStepTimings(getUnitTestName());
+        log("[COMPLETE] - Test Complete");
+        if (isPublishingStepsOnFinalise)
+            session.publishOwnSteps(report);
+        flushReport();
     }
 
     /**
@@ -696,20 +1282,14 @@ public class ExtentReporter //extends SeleniumSupport
      */
     private String getCurTime()
     {
-        Date date = new Date();
-        SimpleDateFormat ft = new SimpleDateFormat("dd-MM-yyyy hh-mm-ss");
-
-        return ft.format(date);
+        return ReportFormatter.getCurTime();
     }
     /**
-     * getCurTime is used to create unique folder name for reporting structure.
+     * getCurDateTime is used to timestamp lines printed when reporting is turned off.
      */
     private String getCurDateTime()
     {
-        Date date = new Date();
-        SimpleDateFormat ft = new SimpleDateFormat("dd-MM-yyyy hh-mm-ss");
-
-        return "[" + ft.format(date) + "] ";
+        return ReportFormatter.getCurDateTime();
     }
 
     /**
@@ -717,10 +1297,11 @@ public class ExtentReporter //extends SeleniumSupport
      */
     public void openReport(boolean isOpenTrue)
     {
-        String reportPath = getReportDirectory() + "ExtentReport.html";
+        String reportDirectory = (session != null) ? session.getReportDirectory() : getReportDirectory();
+        String reportPath = Paths.get(reportDirectory, ReportLayout.REPORT_FILE_NAME).toString();
         if(isReportingTurnedOff)
         {
-            reportPath = getReportDirectory() + "Output.txt";
+            reportPath = Paths.get(reportDirectory, ReportLayout.OUTPUT_FILE_NAME).toString();
         }
 
         System.out.println("Report Path: \n" + reportPath + "\n");
@@ -747,42 +1328,47 @@ public class ExtentReporter //extends SeleniumSupport
 
     /**
      * Takes ugly xml and pretty formats it for the report.
+     * Payloads above ReportFormatter.MAX_PRETTY_PRINT_LENGTH are left as they are.
      */
     public String getPrettyFormatXML(String input, int indent)
-    {//https://stackoverflow.com/questions/139076/how-to-pretty-print-xml-from-java
+    {
+        if (ReportFormatter.isTooLargeToPrettyPrint(input))
+            return input;
+
+        long start = metrics().start();
         try
         {
-            Source xmlInput = new StreamSource(new StringReader(input));
-            StringWriter stringWriter = new StringWriter();
-            StreamResult xmlOutput = new StreamResult(stringWriter);
-            TransformerFactory transformerFactory = TransformerFactory.newInstance();
-            transformerFactory.setAttribute("indent-number", indent);
-            Transformer transformer = transformerFactory.newTransformer();
-            transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-            transformer.transform(xmlInput, xmlOutput);
-            return xmlOutput.getWriter().toString();
+            return ReportFormatter.formatXML(input, indent);
         } catch (Exception e)
         {
-            System.out.println("Failed to make xml input pretty");
+            log("Failed to make xml input pretty");
             return input;
+        } finally
+        {
+            metrics().record(ReportMetrics.Operation.FORMAT_XML, start);
         }
     }
 
     /**
      * Takes ugly JSON and pretty formats it for the report.
+     * Payloads above ReportFormatter.MAX_PRETTY_PRINT_LENGTH are left as they are.
      */
     public String getPrettyFormatJSON(String input)
-    {//https://stackoverflow.com/questions/4105795/pretty-print-json-in-java
+    {
+        if (ReportFormatter.isTooLargeToPrettyPrint(input))
+            return input;
+
+        long start = metrics().start();
         try
         {
-            Gson gson = new GsonBuilder().setPrettyPrinting().create();
-            JsonParser jp = new JsonParser();
-            JsonElement je = jp.parse(input);
-            return gson.toJson(je);
+            return ReportFormatter.formatJSON(input);
         } catch (Exception e)
         {
-            System.out.println("Failed to make JSON input pretty");
+            log("Failed to make JSON input pretty");
             return input;
+        } finally
+        {
+            metrics().record(ReportMetrics.Operation.FORMAT_JSON, start);
         }
     }
 
@@ -804,6 +1390,7 @@ public class ExtentReporter //extends SeleniumSupport
 
     /**
      * Manual Pause for a hard wait when it is required.
+     * No reporting method calls this. Thread.sleep unmounts a virtual thread rather than blocking its carrier.
      */
     public void pause(int millis)
     {
@@ -816,36 +1403,58 @@ public class ExtentReporter //extends SeleniumSupport
         }
     }
 
+    /**
+     * Processing applied to screenshots of steps with the given status, e.g. ScreenshotPolicy.jpeg(640, 0.7f) for Status.PASS.
+     */
+    public void setScreenshotPolicy(Status status, ScreenshotPolicy policy)
+    {
+        if (session == null) setup();
+        session.getScreenshotStore().setPolicy(status, policy);
+    }
+
+    /**
+     * Processing applied to every screenshot.
+     */
+    public void setScreenshotPolicy(ScreenshotPolicy policy)
+    {
+        if (session == null) setup();
+        session.getScreenshotStore().setPolicy(policy);
+    }
+
     /**
      * This method is called to capture Screenshots with Selenium.
      * This method returns a relative path to the captured screenshot.
      * We then use that path and add it to the report.
+     * Identical captures share one file, see ScreenshotStore.
      */
     public String takeScreenshot(boolean isPass)
     {
-        //Counter must increment for unique image names as well as image order.
-        screenshotCounter++;
-        StringBuilder imagePathBuilder = new StringBuilder();
-        StringBuilder relativePathBuilder = new StringBuilder();
-        try
-        {
-            //getReportDirectory() is a method from the baseclass that is set in the Reporting Class.
-            imagePathBuilder.append(ExtentReporter.getReportDirectory());
-            relativePathBuilder.append("Screenshots\\");
-            //We create a new folder for Screenshots within the report folder.
-            new File(imagePathBuilder.toString() + (relativePathBuilder).toString()).mkdirs();
-
-            //Building out the screenshot naming notation. e.g. 1_PASSED.png, 2_FAILED.png
-            relativePathBuilder.append(screenshotCounter + "_");
-            String passFail = (isPass) ? "PASSED" :  "FAILED";
-            relativePathBuilder.append(passFail);
-            relativePathBuilder.append(".png");
+        return takeScreenshot(isPass ? Status.PASS : Status.FAIL, null);
+    }
 
-            //The actual screenshot capturing using the selenium driver.
-            File screenshot = ((TakesScreenshot) driver).getScreenshotAs(OutputType.FILE);
-            FileUtils.copyFile(screenshot, new File(imagePathBuilder.append(relativePathBuilder).toString()));
+    /**
+     * Captures the page, or only element when it isn't null, processed by the ScreenshotPolicy set for status.
+     * The element is cropped from the page capture using its location, which assumes the capture isn't scaled by the device pixel ratio.
+     */
+    public String takeScreenshot(Status status, WebElement element)
+    {
+        if (session == null) setup();
 
-            return "./" + relativePathBuilder.toString();
+        try
+        {
+            //The actual screenshot capturing using the selenium driver. Only the capture happens on the test thread.
+            //The session's ScreenshotStore names the file after its content, then processes and writes it in the background, once per distinct image.
+            long start = metrics().start();
+            byte[] screenshot = ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES);
+            Rectangle crop = null;
+            if (element != null)
+            {
+                org.openqa.selenium.Rectangle rect = element.getRect();
+                crop = new Rectangle(rect.getX(), rect.getY(), rect.getWidth(), rect.getHeight());
+            }
+            String relativePath = session.getRelativeRoot() + session.getScreenshotStore().store(screenshot, status, crop);
+            metrics().record(ReportMetrics.Operation.SCREENSHOT, start);
+            return relativePath;
         } catch (Exception e)
         {
             //Watch this message. It might cause extent failures for silly driver issues. Especially when automating IE.
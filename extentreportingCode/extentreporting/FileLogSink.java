@@ -0,0 +1,75 @@
+package extentreporting;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * FileLogSink writes lines to a file through a BufferedWriter, e.g. the Output.txt of a report when reporting is turned off.
+ * Writes are guarded by a lock so it can be used directly, but ReportSession wraps it in an AsyncLogSink by default so only one thread ever writes.
+ * The lock is a ReentrantLock rather than synchronized, so virtual threads waiting on the file don't pin their carrier thread.
+ */
+public class FileLogSink implements LogSink
+{
+    private final Path file;
+    private final BufferedWriter writer;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public FileLogSink(Path file) throws IOException
+    {
+        this.file = file;
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void log(String line)
+    {
+        lock.lock();
+        try
+        {
+            writer.write(String.valueOf(line));
+            writer.newLine();
+        } catch (IOException e)
+        {
+            System.err.println("Failed writing to '" + file + "' - " + e.getMessage());
+        } finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void flush()
+    {
+        lock.lock();
+        try
+        {
+            writer.flush();
+        } catch (IOException e)
+        {
+            System.err.println("Failed flushing '" + file + "' - " + e.getMessage());
+        } finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        lock.lock();
+        try
+        {
+            writer.close();
+        } catch (IOException e)
+        {
+            System.err.println("Failed closing '" + file + "' - " + e.getMessage());
+        } finally
+        {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,403 @@
+package extentreporting;
+
+import com.aventstack.extentreports.ReportAggregates;
+import com.aventstack.extentreports.Status;
+import com.aventstack.extentreports.model.Category;
+import com.aventstack.extentreports.model.Log;
+import com.aventstack.extentreports.model.ScreenCapture;
+import com.aventstack.extentreports.model.Test;
+import com.aventstack.extentreports.reporter.AbstractReporter;
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * IncrementalHtmlReporter is an Extent reporter that renders a live report whose flush cost scales with the steps added since the last flush.
+ * LiveReport.html is a static shell written once. Every test is a data chunk Live/test-&lt;id&gt;.js, and Live/index.js lists the tests with their status.
+ * The model's listener callbacks mark a test dirty, and a flush rewrites only the dirty tests' chunks, each through a temp file and an atomic rename,
+ * so the page never reads a half written file. The shell polls index.js and reloads the chunks of the tests it shows when their version changes.
+ * Chunks are JavaScript rather than JSON so the page also works when opened from disk, where browsers block fetch().
+ * <p>
+ * Used by ReportSession with -Dextent.render=incremental, see ReportSession.isIncrementalRendering().
+ * -Dextent.render.refreshSeconds sets how often the page polls, 5 seconds by default.
+ */
+public class IncrementalHtmlReporter extends AbstractReporter
+{
+    public static final int DEFAULT_REFRESH_SECONDS = Integer.getInteger("extent.render.refreshSeconds", 5);
+    public static final String SHELL_FILE_NAME = "LiveReport.html";
+    public static final String FOLDER_NAME = "Live";
+
+    //Gson escapes < > & by default, which keeps markup inside a chunk from closing its script.
+    private static final Gson gson = new Gson();
+
+    private final Path shellFile;
+    private final Path folder;
+    private final int refreshSeconds;
+    private final Set<Test> dirtyTests = ConcurrentHashMap.newKeySet();
+    private final ConcurrentMap<Integer, Integer> versions = new ConcurrentHashMap<>();
+    private final AtomicInteger lastRenderedCount = new AtomicInteger(0);
+    private final AtomicLong renderedCount = new AtomicLong(0);
+    private volatile boolean isIndexDirty = true;
+
+    /**
+     * @param directory report folder
+     */
+    public IncrementalHtmlReporter(Path directory)
+    {
+        this(directory, DEFAULT_REFRESH_SECONDS);
+    }
+
+    public IncrementalHtmlReporter(Path directory, int refreshSeconds)
+    {
+        this.shellFile = directory.resolve(SHELL_FILE_NAME);
+        this.folder = directory.resolve(FOLDER_NAME);
+        this.refreshSeconds = Math.max(1, refreshSeconds);
+    }
+
+    @Override
+    public String getReporterName()
+    {
+        return "incremental";
+    }
+
+    /**
+     * Writes the shell page, once, when the reporter is attached.
+     */
+    @Override
+    public void start()
+    {
+        try
+        {
+            Files.createDirectories(folder);
+            writeAtomically(shellFile, createShell());
+        } catch (IOException e)
+        {
+            System.err.println("Failed to write " + SHELL_FILE_NAME + " - " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void onTestStarted(Test test)
+    {
+        markDirty(test);
+    }
+
+    @Override
+    public void onTestRemoved(Test test)
+    {
+        dirtyTests.remove(test);
+        versions.remove(test.getId());
+        isIndexDirty = true;
+    }
+
+    @Override
+    public void onNodeStarted(Test node)
+    {
+        markDirty(node);
+    }
+
+    @Override
+    public void onLogAdded(Test test, Log log)
+    {
+        markDirty(test);
+    }
+
+    @Override
+    public void onCategoryAssigned(Test test, Category category)
+    {
+        markDirty(test);
+    }
+
+    @Override
+    public void onScreenCaptureAdded(Test test, ScreenCapture screenCapture)
+    {
+        markDirty(test);
+    }
+
+    @Override
+    public void onScreenCaptureAdded(Log log, ScreenCapture screenCapture)
+    {
+        markDirty(log.getTest());
+    }
+
+    /**
+     * A change to a node re-renders the top level test it belongs to.
+     */
+    private void markDirty(Test test)
+    {
+        Test root = test;
+        while (root.getParent() != null)
+        {
+            root = root.getParent();
+        }
+        dirtyTests.add(root);
+        isIndexDirty = true;
+    }
+
+    /**
+     * Rewrites the chunk of every test changed since the last flush, then the index if anything changed.
+     */
+    @Override
+    public void flush(ReportAggregates aggregates)
+    {
+        super.flush(aggregates);
+        if (!isIndexDirty && dirtyTests.isEmpty())
+        {
+            lastRenderedCount.set(0);
+            return;
+        }
+
+        int rendered = 0;
+        try
+        {
+            Files.createDirectories(folder);
+            for (Test test : new ArrayList<>(dirtyTests))
+            {
+                //Removed first, so a step added while the chunk is written marks the test dirty again.
+                dirtyTests.remove(test);
+                try
+                {
+                    int version = versions.merge(test.getId(), 1, Integer::sum);
+                    writeAtomically(folder.resolve("test-" + test.getId() + ".js"),
+                            "extentLive.test(" + test.getId() + ", " + gson.toJson(toMap(test, version)) + ");\n");
+                    rendered++;
+                } catch (IOException | RuntimeException e)
+                {
+                    dirtyTests.add(test);
+                    throw e;
+                }
+            }
+
+            isIndexDirty = false;
+            writeAtomically(folder.resolve("index.js"), "extentLive.index(" + gson.toJson(createIndex(aggregates.getTestList())) + ");\n");
+        } catch (IOException e)
+        {
+            isIndexDirty = true;
+            System.err.println("Failed to write the live report - " + e.getMessage());
+        } finally
+        {
+            lastRenderedCount.set(rendered);
+            renderedCount.addAndGet(rendered);
+        }
+    }
+
+    /**
+     * Number of test chunks the last flush rewrote.
+     */
+    public int getLastRenderedCount()
+    {
+        return lastRenderedCount.get();
+    }
+
+    /**
+     * Number of test chunks written since the reporter started.
+     */
+    public long getRenderedCount()
+    {
+        return renderedCount.get();
+    }
+
+    private List<Map<String, Object>> createIndex(List<Test> tests)
+    {
+        List<Map<String, Object>> index = new ArrayList<>(tests.size());
+        for (Test test : tests)
+        {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("id", test.getId());
+            entry.put("name", test.getName());
+            entry.put("status", getStatusName(test.getStatus()));
+            entry.put("start", getTime(test.getStartTime()));
+            entry.put("end", getTime(test.getEndTime()));
+            entry.put("steps", test.getLogContext().size());
+            entry.put("version", versions.getOrDefault(test.getId(), 0));
+            index.add(entry);
+        }
+        return index;
+    }
+
+    private Map<String, Object> toMap(Test test, int version)
+    {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("id", test.getId());
+        map.put("name", test.getName());
+        map.put("status", getStatusName(test.getStatus()));
+        map.put("version", version);
+
+        List<Map<String, Object>> logs = new ArrayList<>();
+        for (Log log : test.getLogContext().getAll())
+        {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("status", getStatusName(log.getStatus()));
+            entry.put("timestamp", getTime(log.getTimestamp()));
+            entry.put("details", log.getDetails());
+
+            List<String> media = new ArrayList<>();
+            if (log.getScreenCaptureContext() != null)
+            {
+                for (ScreenCapture screenCapture : log.getScreenCaptureContext().getAll())
+                {
+                    media.add(getSource(screenCapture));
+                }
+            }
+            if (!media.isEmpty())
+                entry.put("media", media);
+            logs.add(entry);
+        }
+        map.put("logs", logs);
+
+        List<Map<String, Object>> nodes = new ArrayList<>();
+        for (Test node : test.getNodeContext().getAll())
+        {
+            nodes.add(toMap(node, version));
+        }
+        if (!nodes.isEmpty())
+            map.put("nodes", nodes);
+        return map;
+    }
+
+    private static String getSource(ScreenCapture screenCapture)
+    {
+        if (!Boolean.TRUE.equals(screenCapture.isBase64()))
+            return screenCapture.getPath();
+        String base64 = screenCapture.getBase64String();
+        return base64.startsWith("data:") ? base64 : "data:image/png;base64," + base64;
+    }
+
+    private static long getTime(Date date)
+    {
+        return (date != null) ? date.getTime() : 0L;
+    }
+
+    private static String getStatusName(Status status)
+    {
+        return (status != null) ? status.name().toLowerCase() : "pass";
+    }
+
+    /**
+     * Writes content to a temp file next to target, then renames it over target.
+     */
+    private static void writeAtomically(Path target, String content) throws IOException
+    {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.write(temp, content.getBytes(StandardCharsets.UTF_8));
+        try
+        {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e)
+        {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private String createShell()
+    {
+        return "<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"utf-8\">\n<title>Extent Live Report</title>\n"
+                + "<style>\n"
+                + "body {font-family: sans-serif; margin: 20px;}\n"
+                + "details {border: 1px solid #ddd; margin: 4px 0; padding: 4px 8px;}\n"
+                + "summary {cursor: pointer;}\n"
+                + "table {border-collapse: collapse; width: 100%; margin-top: 6px;}\n"
+                + "td {border-top: 1px solid #eee; padding: 4px; vertical-align: top;}\n"
+                + ".status {font-weight: bold; text-transform: uppercase; margin-right: 8px;}\n"
+                + ".pass {color: #2e7d32;} .fail, .fatal, .error {color: #c62828;} .warning {color: #ef6c00;} .skip, .info, .debug {color: #546e7a;}\n"
+                + ".node {margin-left: 16px;}\n"
+                + ".r-img {width: 50%;}\n"
+                + "</style>\n</head>\n<body>\n"
+                + "<h1>Extent Live Report</h1>\n<p id=\"summary\">Waiting for tests...</p>\n<div id=\"tests\"></div>\n"
+                + "<script>\n"
+                + "var extentLive = (function () {\n"
+                + "  var folder = '" + FOLDER_NAME + "/', versions = {}, loaded = {};\n"
+                + "  function load(file) {\n"
+                + "    var script = document.createElement('script');\n"
+                + "    script.src = folder + file + '?t=' + Date.now();\n"
+                + "    script.onload = script.onerror = function () { script.parentNode.removeChild(script); };\n"
+                + "    document.head.appendChild(script);\n"
+                + "  }\n"
+                + "  function element(tag, className, text) {\n"
+                + "    var e = document.createElement(tag);\n"
+                + "    if (className) e.className = className;\n"
+                + "    if (text !== undefined) e.textContent = text;\n"
+                + "    return e;\n"
+                + "  }\n"
+                + "  function renderTest(test, container) {\n"
+                + "    var table = element('table');\n"
+                + "    test.logs.forEach(function (log) {\n"
+                + "      var row = table.insertRow(), details = row.insertCell(2);\n"
+                + "      row.insertCell(0).appendChild(element('span', 'status ' + log.status, log.status));\n"
+                + "      row.insertCell(1).textContent = new Date(log.timestamp).toLocaleTimeString();\n"
+                + "      details.innerHTML = log.details || '';\n"
+                + "      (log.media || []).forEach(function (src) {\n"
+                + "        var img = element('img', 'r-img');\n"
+                + "        img.src = src;\n"
+                + "        details.appendChild(img);\n"
+                + "      });\n"
+                + "    });\n"
+                + "    container.appendChild(table);\n"
+                + "    (test.nodes || []).forEach(function (node) {\n"
+                + "      var div = element('div', 'node');\n"
+                + "      div.appendChild(element('span', 'status ' + node.status, node.status));\n"
+                + "      div.appendChild(document.createTextNode(node.name));\n"
+                + "      renderTest(node, div);\n"
+                + "      container.appendChild(div);\n"
+                + "    });\n"
+                + "  }\n"
+                + "  function refresh() { load('index.js'); }\n"
+                + "  setInterval(refresh, " + (refreshSeconds * 1000) + ");\n"
+                + "  document.addEventListener('DOMContentLoaded', refresh);\n"
+                + "  return {\n"
+                + "    index: function (tests) {\n"
+                + "      var container = document.getElementById('tests'), counts = {};\n"
+                + "      tests.forEach(function (test) {\n"
+                + "        counts[test.status] = (counts[test.status] || 0) + 1;\n"
+                + "        var details = document.getElementById('test-' + test.id);\n"
+                + "        if (!details) {\n"
+                + "          details = element('details');\n"
+                + "          details.id = 'test-' + test.id;\n"
+                + "          details.appendChild(element('summary'));\n"
+                + "          details.appendChild(element('div'));\n"
+                + "          details.addEventListener('toggle', function () {\n"
+                + "            if (details.open && loaded[test.id] !== versions[test.id]) load('test-' + test.id + '.js');\n"
+                + "          });\n"
+                + "          container.appendChild(details);\n"
+                + "        }\n"
+                + "        var summary = details.firstChild;\n"
+                + "        summary.textContent = '';\n"
+                + "        summary.appendChild(element('span', 'status ' + test.status, test.status));\n"
+                + "        summary.appendChild(document.createTextNode(test.name + ' (' + test.steps + ' steps)'));\n"
+                + "        if (versions[test.id] !== test.version) {\n"
+                + "          versions[test.id] = test.version;\n"
+                + "          if (details.open) load('test-' + test.id + '.js');\n"
+                + "        }\n"
+                + "      });\n"
+                + "      document.getElementById('summary').textContent = tests.length + ' tests: ' + Object.keys(counts).map(function (status) {\n"
+                + "        return counts[status] + ' ' + status;\n"
+                + "      }).join(', ') + ' - updated ' + new Date().toLocaleTimeString();\n"
+                + "    },\n"
+                + "    test: function (id, test) {\n"
+                + "      var details = document.getElementById('test-' + id);\n"
+                + "      if (!details) return;\n"
+                + "      loaded[id] = test.version;\n"
+                + "      var body = details.lastChild;\n"
+                + "      body.textContent = '';\n"
+                + "      renderTest(test, body);\n"
+                + "    }\n"
+                + "  };\n"
+                + "})();\n"
+                + "</script>\n</body>\n</html>\n";
+    }
+}
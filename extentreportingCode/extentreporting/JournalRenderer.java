@@ -0,0 +1,124 @@
+package extentreporting;
+
+import com.aventstack.extentreports.ExtentReports;
+import com.aventstack.extentreports.ExtentTest;
+import com.aventstack.extentreports.MediaEntityBuilder;
+import com.aventstack.extentreports.Status;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * JournalRenderer rebuilds ExtentReport.html from a StepJournal, e.g. after the JVM running the tests died before the report was flushed.
+ * It replays every test and step with its original timestamp. Tests of a session sharded by class go to a sub folder per class, like the live report.
+ * <p>
+ * Usage: java extentreporting.JournalRenderer &lt;report folder or journal.bin&gt; [output folder]
+ * The output folder defaults to the journal's folder. Screenshot and attachment links are relative, so render into that folder to keep them working.
+ */
+public class JournalRenderer implements StepJournal.Visitor
+{
+    private final ReportLayout outputDirectory;
+    private final Map<String, ExtentReports> reports = new HashMap<>();
+    private final Map<Integer, ExtentTest> tests = new HashMap<>();
+    private final Map<Integer, Long> lastTimestamps = new HashMap<>();
+
+    /**
+     * @param outputDirectory folder ExtentReport.html is written to, created if needed
+     */
+    public JournalRenderer(Path outputDirectory) throws IOException
+    {
+        this.outputDirectory = new ReportLayout(Files.createDirectories(outputDirectory));
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length == 0)
+        {
+            System.err.println("Usage: java extentreporting.JournalRenderer <report folder or journal.bin> [output folder]");
+            System.exit(1);
+        }
+
+        Path journal = Paths.get(args[0]);
+        if (journal.toFile().isDirectory())
+            journal = journal.resolve(StepJournal.FILE_NAME);
+        Path output = (args.length > 1) ? Paths.get(args[1]) : journal.toAbsolutePath().getParent();
+
+        long records = render(journal, output);
+        System.out.println("Rendered " + records + " journal records into " + output);
+    }
+
+    /**
+     * Replays journal into a new report in outputDirectory. Returns the number of records replayed.
+     */
+    public static long render(Path journal, Path outputDirectory) throws IOException
+    {
+        JournalRenderer renderer = new JournalRenderer(outputDirectory);
+        long records = StepJournal.read(journal, renderer);
+        renderer.flush();
+        return records;
+    }
+
+    @Override
+    public void testCreated(int testId, String reportKey, String testName, long timestamp)
+    {
+        ExtentTest test = getReport(reportKey).createTest(testName);
+        test.getModel().setStartTime(new Date(timestamp));
+        tests.put(testId, test);
+        lastTimestamps.put(testId, timestamp);
+    }
+
+    @Override
+    public void step(int testId, Status status, String message, String markup, String mediaPath, long timestamp)
+    {
+        ExtentTest test = tests.get(testId);
+        if (test == null)
+            return;
+
+        try
+        {
+            if (markup != null)
+                test.log(status, () -> markup);
+            else if (mediaPath != null)
+                test.log(status, message, MediaEntityBuilder.createScreenCaptureFromPath(mediaPath).build());
+            else
+                test.log(status, message);
+        } catch (IOException e)
+        {
+            test.log(status, message + " - screenshot unavailable");
+        }
+        test.getModel().getLogContext().getLast().setTimestamp(new Date(timestamp));
+        lastTimestamps.put(testId, timestamp);
+    }
+
+    /**
+     * Sets every test's end time to its last step and writes the reports.
+     */
+    public void flush()
+    {
+        for (Map.Entry<Integer, ExtentTest> entry : tests.entrySet())
+        {
+            entry.getValue().getModel().setEndTime(new Date(lastTimestamps.get(entry.getKey())));
+        }
+        for (ExtentReports report : reports.values())
+        {
+            report.flush();
+        }
+    }
+
+    private ExtentReports getReport(String reportKey)
+    {
+        ExtentReports report = reports.get(reportKey);
+        if (report == null)
+        {
+            ReportLayout directory = reportKey.isEmpty() ? outputDirectory : outputDirectory.getShard(ReportSession.getShardFolderName(reportKey));
+            report = ReportSession.createExtentReports(directory);
+            reports.put(reportKey, report);
+        }
+        return report;
+    }
+}
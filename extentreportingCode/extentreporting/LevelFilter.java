@@ -0,0 +1,59 @@
+package extentreporting;
+
+import com.aventstack.extentreports.Status;
+
+/**
+ * LevelFilter orders step statuses by severity, DEBUG &lt; INFO &lt; PASS/SKIP &lt; WARNING &lt; FAIL/ERROR &lt; FATAL,
+ * and resolves the minimum level a test class reports at.
+ * <p>
+ * -Dextent.level sets the minimum level for the whole run, e.g. -Dextent.level=WARN drops every stepInfo() and stepPassed().
+ * -Dextent.level.&lt;test class&gt; overrides it for one test class, e.g. -Dextent.level.LoginTests=INFO.
+ * Levels are INFO, PASS, WARN, FAIL and FATAL, or any Status name.
+ */
+public final class LevelFilter
+{
+    private LevelFilter()
+    {
+    }
+
+    /**
+     * The minimum level for testClassName, from its own property, the run wide property or INFO when neither is set.
+     */
+    public static Status getMinimumLevel(String testClassName)
+    {
+        String level = (testClassName != null) ? System.getProperty("extent.level." + testClassName) : null;
+        if (level == null)
+            level = System.getProperty("extent.level");
+        return (level != null) ? parse(level) : Status.INFO;
+    }
+
+    public static Status parse(String level)
+    {
+        String name = level.trim().toUpperCase();
+        return "WARN".equals(name) ? Status.WARNING : Status.valueOf(name);
+    }
+
+    /**
+     * True when a step of status is at or above minimumLevel and should be recorded.
+     */
+    public static boolean isAtLeast(Status status, Status minimumLevel)
+    {
+        return rank(status) >= rank(minimumLevel);
+    }
+
+    private static int rank(Status status)
+    {
+        switch (status)
+        {
+            case DEBUG: return 0;
+            case INFO: return 1;
+            case PASS:
+            case SKIP: return 2;
+            case WARNING: return 3;
+            case FAIL:
+            case ERROR: return 4;
+            case FATAL: return 5;
+            default: return 1;
+        }
+    }
+}
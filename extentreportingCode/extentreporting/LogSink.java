@@ -0,0 +1,23 @@
+package extentreporting;
+
+/**
+ * LogSink receives the plain text lines every step prints, to the console when reporting is on and to Output.txt when it is off.
+ * Implementations: ConsoleLogSink, FileLogSink, AsyncLogSink (wraps either of them) and NullLogSink.
+ */
+public interface LogSink
+{
+    /**
+     * Writes one line. Implementations add the line separator. A null line is written as "null", as PrintStream.println does.
+     */
+    void log(String line);
+
+    /**
+     * Makes everything logged so far visible in the underlying stream or file.
+     */
+    void flush();
+
+    /**
+     * Flushes and releases the sink. Lines logged afterwards are dropped.
+     */
+    void close();
+}
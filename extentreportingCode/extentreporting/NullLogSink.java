@@ -0,0 +1,28 @@
+package extentreporting;
+
+/**
+ * NullLogSink drops every line. Use it when neither the console nor Output.txt should receive step messages.
+ */
+public final class NullLogSink implements LogSink
+{
+    public static final NullLogSink INSTANCE = new NullLogSink();
+
+    private NullLogSink()
+    {
+    }
+
+    @Override
+    public void log(String line)
+    {
+    }
+
+    @Override
+    public void flush()
+    {
+    }
+
+    @Override
+    public void close()
+    {
+    }
+}
@@ -0,0 +1,217 @@
+package extentreporting;
+
+import com.aventstack.extentreports.Status;
+import com.aventstack.extentreports.markuputils.ExtentColor;
+import org.openqa.selenium.WebElement;
+
+import java.io.Reader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * NullReporter is the StepReporter for runs that don't report at all.
+ * Every step returns immediately: no timestamps, no string building, no Output.txt, and Supplier messages are never evaluated.
+ * Readers, streams and cursors passed to it are left unread.
+ */
+public final class NullReporter implements StepReporter
+{
+    public static final NullReporter INSTANCE = new NullReporter();
+
+    private NullReporter()
+    {
+    }
+
+    @Override
+    public boolean isEnabled(Status status)
+    {
+        return false;
+    }
+
+    @Override
+    public String getCurrentTestName()
+    {
+        return null;
+    }
+
+    @Override
+    public void stepPassed(String message)
+    {
+    }
+
+    @Override
+    public void stepInfo(String message)
+    {
+    }
+
+    @Override
+    public void stepWarning(String message)
+    {
+    }
+
+    @Override
+    public void stepFailed(String message)
+    {
+    }
+
+    @Override
+    public void stepFatal(String message)
+    {
+    }
+
+    @Override
+    public void stepPassedWithXML(String message, String xmlCodeBlock)
+    {
+    }
+
+    @Override
+    public void stepPassedWithJSON(String message, String jsonCodeBlock)
+    {
+    }
+
+    @Override
+    public void stepFailedWithXML(String message, String xmlCodeBlock)
+    {
+    }
+
+    @Override
+    public void stepFailedWithJSON(String message, String jsonCodeBlock)
+    {
+    }
+
+    @Override
+    public void stepPassedWithXML(String message, Reader xml)
+    {
+    }
+
+    @Override
+    public void stepPassedWithXML(String message, Path xmlFile)
+    {
+    }
+
+    @Override
+    public void stepFailedWithXML(String message, Reader xml)
+    {
+    }
+
+    @Override
+    public void stepFailedWithXML(String message, Path xmlFile)
+    {
+    }
+
+    @Override
+    public void stepPassedWithJSON(String message, Reader json)
+    {
+    }
+
+    @Override
+    public void stepPassedWithJSON(String message, Path jsonFile)
+    {
+    }
+
+    @Override
+    public void stepFailedWithJSON(String message, Reader json)
+    {
+    }
+
+    @Override
+    public void stepFailedWithJSON(String message, Path jsonFile)
+    {
+    }
+
+    @Override
+    public void stepPassedWithTable(String message, List<ArrayList<String>> tableList, String... headers)
+    {
+    }
+
+    @Override
+    public void stepPassedWithTable(String message, List<ArrayList<String>> tableList, ArrayList<String> headerList)
+    {
+    }
+
+    @Override
+    public void stepPassedWithTable(String message, Iterable<? extends List<String>> rows, List<String> headers)
+    {
+    }
+
+    @Override
+    public void stepPassedWithTable(String message, Stream<? extends List<String>> rows, List<String> headers)
+    {
+    }
+
+    @Override
+    public void stepPassedWithTable(String message, RowCursor rows, List<String> headers)
+    {
+    }
+
+    @Override
+    public void stepPassedWithLabel(String label, ExtentColor color)
+    {
+    }
+
+    @Override
+    public void stepPassedWithScreenshot(String message)
+    {
+    }
+
+    @Override
+    public void stepPassedWithScreenshot(String message, WebElement element)
+    {
+    }
+
+    @Override
+    public void stepFailedWithScreenshot(String message)
+    {
+    }
+
+    @Override
+    public void stepFailedWithScreenshot(String message, WebElement element)
+    {
+    }
+
+    @Override
+    public void stepWarningWithScreenshot(String message)
+    {
+    }
+
+    @Override
+    public void stepSkipWithScreenshot(String message)
+    {
+    }
+
+    @Override
+    public void recordStepTimings()
+    {
+    }
+
+    @Override
+    public void writeEvidence()
+    {
+    }
+
+    @Override
+    public void discardEvidence()
+    {
+    }
+
+    @Override
+    public void publishSteps()
+    {
+    }
+
+    @Override
+    public void flushReport()
+    {
+    }
+
+    @Override
+    public void finaliseTest()
+    {
+    }
+
+    @Override
+    public void close()
+    {
+    }
+}
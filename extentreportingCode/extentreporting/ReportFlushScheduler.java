@@ -0,0 +1,268 @@
+package extentreporting;
+
+import com.aventstack.extentreports.ExtentReports;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * ReportFlushScheduler coalesces report.flush() calls for the ExtentReports objects of a ReportSession.
+ * Step methods only mark their report as dirty. A single background thread flushes the dirty reports when the flush interval elapses
+ * or when the dirty step threshold is reached, so the Spark HTML is no longer re-rendered on every step.
+ * flushNow() and shutdown() guarantee the final state is written to disk. ReportSession calls shutdown() when it closes, also on JVM exit.
+ * <p>
+ * The Extent model isn't thread-safe. Every change to it is made while holding the flush lock, through runWithFlushLock() or beforeFlush,
+ * so a report is never rendered while a step is being added to it.
+ */
+public class ReportFlushScheduler
+{
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = Long.getLong("extent.flush.intervalMillis", 2000L);
+    public static final int DEFAULT_DIRTY_STEP_THRESHOLD = Integer.getInteger("extent.flush.dirtySteps", 100);
+
+    private final List<ExtentReports> reports = new CopyOnWriteArrayList<>();
+    private final Set<ExtentReports> dirtyReports = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService executor;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicInteger dirtySteps = new AtomicInteger(0);
+    private final AtomicBoolean isFlushQueued = new AtomicBoolean(false);
+    private final AtomicBoolean isShutdown = new AtomicBoolean(false);
+    private final ReentrantLock scheduleLock = new ReentrantLock();
+    private volatile int dirtyStepThreshold = DEFAULT_DIRTY_STEP_THRESHOLD;
+    private volatile Consumer<ExtentReports> beforeFlush = report -> { };
+    private volatile Runnable beforeFinalFlush = () -> { };
+    private volatile Runnable afterFinalFlush = () -> { };
+    private volatile ReportMetrics metrics = ReportMetrics.DISABLED;
+    private ScheduledFuture<?> periodicFlush;
+
+    public ReportFlushScheduler()
+    {
+        this(DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_DIRTY_STEP_THRESHOLD);
+    }
+
+    public ReportFlushScheduler(long flushIntervalMillis, int dirtyStepThreshold)
+    {
+        this.dirtyStepThreshold = dirtyStepThreshold;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable ->
+        {
+            Thread thread = TestContext.newThread(runnable, "extent-report-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        setFlushInterval(flushIntervalMillis);
+    }
+
+    /**
+     * Adds a report to be flushed by this scheduler. Sharded sessions register one report per test class.
+     */
+    public void register(ExtentReports report)
+    {
+        reports.add(report);
+    }
+
+    /**
+     * Changes how often the background thread checks for unflushed steps.
+     * A value of 0 or less disables the periodic flush, leaving only the dirty step threshold and explicit flushes.
+     */
+    public void setFlushInterval(long flushIntervalMillis)
+    {
+        scheduleLock.lock();
+        try
+        {
+            if (periodicFlush != null)
+                periodicFlush.cancel(false);
+            periodicFlush = null;
+
+            if (flushIntervalMillis > 0 && !isShutdown.get())
+                periodicFlush = executor.scheduleWithFixedDelay(this::flushIfDirty, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        } finally
+        {
+            scheduleLock.unlock();
+        }
+    }
+
+    /**
+     * Runs right before each report is flushed, while holding the flush lock.
+     * ReportSession uses it to publish buffered steps, which makes the flush thread the only writer of the Extent model.
+     */
+    public void setBeforeFlush(Consumer<ExtentReports> beforeFlush)
+    {
+        this.beforeFlush = beforeFlush;
+    }
+
+    /**
+     * Runs once in shutdown(), right before the final flush, whether the session was closed directly or by its JVM shutdown hook.
+     * ReportSession adds its overhead summary to the reports here.
+     */
+    public void setBeforeFinalFlush(Runnable beforeFinalFlush)
+    {
+        this.beforeFinalFlush = beforeFinalFlush;
+    }
+
+    /**
+     * Runs once in shutdown(), after the final flush. ReportSession closes its step journal here.
+     */
+    public void setAfterFinalFlush(Runnable afterFinalFlush)
+    {
+        this.afterFinalFlush = afterFinalFlush;
+    }
+
+    /**
+     * Runs task while holding the flush lock, so it never overlaps with a report being rendered.
+     * ExtentReporter adds every unbuffered step through it, and ReportSession publishes a finished test's steps in one operation.
+     */
+    public void runWithFlushLock(Runnable task)
+    {
+        flushLock.lock();
+        try
+        {
+            task.run();
+        } finally
+        {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Where the time spent flushing is recorded.
+     */
+    public void setMetrics(ReportMetrics metrics)
+    {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Number of unflushed steps that triggers a background flush ahead of the next interval.
+     * A value of 1 restores the old flush-on-every-step behaviour, without blocking the test thread.
+     */
+    public void setDirtyStepThreshold(int dirtyStepThreshold)
+    {
+        this.dirtyStepThreshold = Math.max(1, dirtyStepThreshold);
+    }
+
+    /**
+     * Called by every step method after the in-memory model of the report has been updated.
+     */
+    public void markDirty(ExtentReports report)
+    {
+        dirtyReports.add(report);
+        if (dirtySteps.incrementAndGet() >= dirtyStepThreshold && !isShutdown.get() && isFlushQueued.compareAndSet(false, true))
+        {
+            try
+            {
+                executor.execute(() ->
+                {
+                    isFlushQueued.set(false);
+                    flushIfDirty();
+                });
+            } catch (Exception e)
+            {//The executor has been shut down in the meantime. The final flush picks up these steps.
+                isFlushQueued.set(false);
+            }
+        }
+    }
+
+    /**
+     * Flushes the report on the calling thread, regardless of the dirty step count.
+     * Used by finaliseTest() so the report on disk is complete once a test ends.
+     */
+    public void flushNow(ExtentReports report)
+    {
+        dirtyReports.remove(report);
+        flush(report);
+    }
+
+    /**
+     * Flushes every registered report on the calling thread.
+     */
+    public void flushNow()
+    {
+        dirtySteps.set(0);
+        dirtyReports.clear();
+        for (ExtentReports report : reports)
+        {
+            flush(report);
+        }
+    }
+
+    /**
+     * Stops the background thread and writes the final state of the report.
+     * Safe to call more than once.
+     */
+    public void shutdown()
+    {
+        if (!isShutdown.compareAndSet(false, true))
+            return;
+
+        executor.shutdown();
+        try
+        {
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        runQuietly(beforeFinalFlush, "before the final report flush");
+        flushNow();
+        runQuietly(afterFinalFlush, "after the final report flush");
+    }
+
+    /**
+     * True once shutdown() has started, including when it runs from the session's JVM shutdown hook.
+     */
+    public boolean isShutdown()
+    {
+        return isShutdown.get();
+    }
+
+    private static void runQuietly(Runnable task, String description)
+    {
+        try
+        {
+            task.run();
+        } catch (Exception e)
+        {
+            System.err.println("Failed to run the task " + description + " - " + e.getMessage());
+        }
+    }
+
+    private void flushIfDirty()
+    {
+        if (dirtySteps.getAndSet(0) == 0)
+            return;
+
+        for (ExtentReports report : new ArrayList<>(dirtyReports))
+        {
+            dirtyReports.remove(report);
+            flush(report);
+        }
+    }
+
+    private void flush(ExtentReports report)
+    {
+        flushLock.lock();
+        long start = metrics.start();
+        try
+        {
+            beforeFlush.accept(report);
+            report.flush();
+            metrics.record(ReportMetrics.Operation.FLUSH, start);
+        } catch (Exception e)
+        {//An exception escaping the periodic task would cancel every later flush.
+            System.err.println("Report flush failed - " + e.getMessage());
+        } finally
+        {
+            flushLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package extentreporting;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * ReportFormatter holds the formatters used on every step, created once instead of per log line.
+ * DateTimeFormatter and Gson are thread-safe and shared. XML Transformers are not, so they are borrowed from a small lock-free pool.
+ * A pool rather than a ThreadLocal keeps the number of Transformers bounded by concurrent use, not by thread count, which matters with virtual threads.
+ * Payloads larger than MAX_PRETTY_PRINT_LENGTH are returned as they are, pretty printing them costs more than it is worth.
+ */
+public final class ReportFormatter
+{
+    public static final int MAX_PRETTY_PRINT_LENGTH = Integer.getInteger("extent.prettyPrint.maxChars", 1024 * 1024);
+
+    private static final DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("dd-MM-yyyy hh-mm-ss");
+    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private static final TransformerFactory transformerFactory = TransformerFactory.newInstance();
+    private static final ConcurrentLinkedQueue<Transformer> xmlTransformers = new ConcurrentLinkedQueue<>();
+
+    private ReportFormatter()
+    {
+    }
+
+    /**
+     * Used to create unique folder names for the reporting structure.
+     */
+    public static String getCurTime()
+    {
+        return timeFormatter.format(LocalDateTime.now());
+    }
+
+    /**
+     * Timestamp prefix for lines written to Output.txt.
+     */
+    public static String getCurDateTime()
+    {
+        return "[" + getCurTime() + "] ";
+    }
+
+    public static boolean isTooLargeToPrettyPrint(String input)
+    {
+        return input != null && input.length() > MAX_PRETTY_PRINT_LENGTH;
+    }
+
+    /**
+     * Indents xml using a pooled Transformer.
+     */
+    public static String formatXML(String input, int indent) throws TransformerException
+    {//https://stackoverflow.com/questions/139076/how-to-pretty-print-xml-from-java
+        Transformer pooled = xmlTransformers.poll();
+        Transformer transformer = (pooled != null) ? pooled : createTransformer();
+        try
+        {
+            StringWriter stringWriter = new StringWriter();
+            transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", String.valueOf(indent));
+            transformer.transform(new StreamSource(new StringReader(input)), new StreamResult(stringWriter));
+            return stringWriter.toString();
+        } finally
+        {
+            transformer.reset();
+            transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+            xmlTransformers.offer(transformer);
+        }
+    }
+
+    /**
+     * Indents JSON using the shared Gson instance.
+     */
+    public static String formatJSON(String input)
+    {//https://stackoverflow.com/questions/4105795/pretty-print-json-in-java
+        return gson.toJson(gson.fromJson(input, JsonElement.class));
+    }
+
+    private static Transformer createTransformer()
+    {
+        try
+        {
+            Transformer transformer;
+            //TransformerFactory is not guaranteed to be thread-safe. This only runs while the pool is still growing.
+            synchronized (transformerFactory)
+            {
+                transformer = transformerFactory.newTransformer();
+            }
+            transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+            return transformer;
+        } catch (Exception e)
+        {
+            throw new IllegalStateException("Failed to create xml Transformer", e);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package extentreporting;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * ReportLayout is the folder tree of one report: the report folder and its Screenshots, Attachments and shard sub folders.
+ * Every folder is created once, on first use, and its resolved Path is cached, so a capture or attachment costs no further mkdirs/exists calls.
+ * Paths are built with java.nio.file, so the layout is the same on Windows and Linux.
+ * <p>
+ * Names of files within the layout, e.g. Screenshots/3fa2...9c.png, use '/' so the same string is both a relative path and a link in the html report.
+ */
+public class ReportLayout
+{
+    public static final String REPORT_FILE_NAME = "ExtentReport.html";
+    public static final String OUTPUT_FILE_NAME = "Output.txt";
+    public static final String SCREENSHOTS = "Screenshots";
+    public static final String ATTACHMENTS = "Attachments";
+
+    private final Path root;
+    private final ConcurrentMap<String, Path> directories = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ReportLayout> shards = new ConcurrentHashMap<>();
+
+    /**
+     * A layout for an existing folder.
+     */
+    public ReportLayout(Path root)
+    {
+        this.root = root.toAbsolutePath().normalize();
+    }
+
+    /**
+     * Creates folder, or a numbered sibling such as "folder (2)" when it already exists, and returns its layout.
+     * Two sessions started within the same second for the same test would otherwise resolve to the same timestamped folder.
+     * createDirectory only succeeds for one caller, so the others get a numbered suffix.
+     */
+    public static ReportLayout createUnique(Path folder) throws IOException
+    {
+        Path base = folder.toAbsolutePath().normalize();
+        Files.createDirectories(base.getParent());
+
+        Path directory = base;
+        for (int i = 2; ; i++)
+        {
+            try
+            {
+                Files.createDirectory(directory);
+                return new ReportLayout(directory);
+            } catch (FileAlreadyExistsException e)
+            {
+                directory = base.resolveSibling(base.getFileName() + " (" + i + ")");
+            }
+        }
+    }
+
+    /**
+     * The folder every report of this JVM goes below, &lt;user.dir&gt;/Reports.
+     */
+    public static Path getReportsRoot()
+    {
+        return Paths.get(System.getProperty("user.dir"), "Reports");
+    }
+
+    public Path getRoot()
+    {
+        return root;
+    }
+
+    /**
+     * The report folder as a string ending with the platform separator, for APIs that take a folder prefix.
+     */
+    public String getRootPrefix()
+    {
+        return root.toString() + root.getFileSystem().getSeparator();
+    }
+
+    /**
+     * Resolves a file of the layout, e.g. ExtentReport.html or Attachments/3.xml. Does not touch the disk.
+     */
+    public Path resolve(String relativePath)
+    {
+        return root.resolve(relativePath);
+    }
+
+    /**
+     * The sub folder name, created on first use.
+     */
+    public Path getDirectory(String name)
+    {
+        Path directory = directories.get(name);
+        return (directory != null) ? directory : directories.computeIfAbsent(name, this::createDirectory);
+    }
+
+    public Path getScreenshotDirectory()
+    {
+        return getDirectory(SCREENSHOTS);
+    }
+
+    public Path getAttachmentDirectory()
+    {
+        return getDirectory(ATTACHMENTS);
+    }
+
+    /**
+     * The layout of the sub folder a shard's report is written to, created on first use.
+     */
+    public ReportLayout getShard(String folderName)
+    {
+        ReportLayout shard = shards.get(folderName);
+        return (shard != null) ? shard : shards.computeIfAbsent(folderName, name -> new ReportLayout(getDirectory(name)));
+    }
+
+    private Path createDirectory(String name)
+    {
+        Path directory = root.resolve(name);
+        try
+        {
+            return Files.createDirectories(directory);
+        } catch (IOException e)
+        {
+            System.err.println("Failed to create report folder '" + directory + "' - " + e.getMessage());
+            return directory;
+        }
+    }
+
+    /**
+     * Writes bytes to file with a single channel write, replacing an existing file.
+     * Unlike Files.write, which copies through an 8 KB stream buffer, a large screenshot is handed to the OS in one call where the platform allows it.
+     */
+    public static void write(Path file, byte[] bytes) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining())
+            {
+                channel.write(buffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package extentreporting;
+
+import com.aventstack.extentreports.Status;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * ReportMerger combines the step journals of several JVMs, e.g. Surefire/Gradle forks or the shards of a split CI run, into one report.
+ * Each journal is streamed by its own reader thread into a bounded queue, and a single thread replays the records into the consolidated report,
+ * so reading happens in parallel while memory holds no more than the queue and the report model itself.
+ * Tests of sessions sharded by class are merged into one sub folder per class.
+ * <p>
+ * Usage: java extentreporting.ReportMerger &lt;output folder&gt; &lt;journal.bin or folder to search&gt;...
+ * Folders are searched recursively, so passing Reports/&lt;unitTestName&gt; merges every run below it.
+ * Journals are written with -Dextent.journal=true.
+ */
+public class ReportMerger
+{
+    public static final int DEFAULT_READERS = Integer.getInteger("extent.merge.threads", 4);
+    public static final int DEFAULT_QUEUE_SIZE = Integer.getInteger("extent.merge.queueSize", 10_000);
+
+    //Relative href/src attributes written by AttachmentMarkup, e.g. href='./Attachments/3.xml'.
+    private static final Pattern RELATIVE_LINK = Pattern.compile("(href|data-src)='(\\.{1,2}/)");
+
+    private ReportMerger()
+    {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        if (args.length < 2)
+        {
+            System.err.println("Usage: java extentreporting.ReportMerger <output folder> <journal.bin or folder to search>...");
+            System.exit(1);
+        }
+
+        List<Path> journals = new ArrayList<>();
+        for (int i = 1; i < args.length; i++)
+        {
+            journals.addAll(findJournals(Paths.get(args[i])));
+        }
+
+        Path output = Paths.get(args[0]);
+        long records = merge(journals, output);
+        System.out.println("Merged " + records + " records from " + journals.size() + " journals into " + output);
+    }
+
+    /**
+     * The journal itself when path is a journal file, otherwise every journal found below the folder, in path order.
+     */
+    public static List<Path> findJournals(Path path) throws IOException
+    {
+        if (!Files.isDirectory(path))
+            return Files.exists(path) ? Collections.singletonList(path) : new ArrayList<>();
+
+        try (Stream<Path> files = Files.walk(path))
+        {
+            return files.filter(file -> file.getFileName().toString().equals(StepJournal.FILE_NAME))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Merges journals into a new report in outputDirectory with DEFAULT_READERS reader threads. Returns the number of records merged.
+     */
+    public static long merge(List<Path> journals, Path outputDirectory) throws IOException, InterruptedException
+    {
+        return merge(journals, outputDirectory, DEFAULT_READERS);
+    }
+
+    public static long merge(List<Path> journals, Path outputDirectory, int readers) throws IOException, InterruptedException
+    {
+        JournalRenderer renderer = new JournalRenderer(outputDirectory);
+        Path output = outputDirectory.toAbsolutePath();
+        BlockingQueue<Record> queue = new ArrayBlockingQueue<>(DEFAULT_QUEUE_SIZE);
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(readers, journals.size())), runnable ->
+        {
+            Thread thread = TestContext.newThread(runnable, "extent-report-merge");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < journals.size(); i++)
+        {
+            int journalIndex = i;
+            Path journal = journals.get(i);
+            executor.execute(() -> read(journalIndex, journal, queue));
+        }
+        executor.shutdown();
+
+        //Test ids are only unique within a journal, so they are renumbered per journal.
+        Map<Long, Integer> testIds = new HashMap<>();
+        Map<Integer, String> linkPrefixes = new HashMap<>();
+        long records = 0;
+        int finishedJournals = 0;
+        while (finishedJournals < journals.size())
+        {
+            Record record = queue.take();
+            if (record.isEnd)
+            {
+                finishedJournals++;
+                continue;
+            }
+
+            long key = ((long) record.journalIndex << 32) | (record.testId & 0xFFFFFFFFL);
+            if (record.isTest)
+            {
+                int testId = testIds.size() + 1;
+                testIds.put(key, testId);
+                linkPrefixes.put(testId, getLinkPrefix(journals.get(record.journalIndex), output, record.first));
+                renderer.testCreated(testId, record.first, record.second, record.timestamp);
+            } else
+            {
+                Integer testId = testIds.get(key);
+                if (testId != null)
+                {
+                    String prefix = linkPrefixes.get(testId);
+                    String markup = (record.second != null) ? RELATIVE_LINK.matcher(record.second).replaceAll("$1='" + Matcher.quoteReplacement(prefix) + "$2") : null;
+                    String mediaPath = (record.third != null && record.third.startsWith(".")) ? prefix + record.third.replace('\\', '/') : record.third;
+                    renderer.step(testId, record.status, record.first, markup, mediaPath, record.timestamp);
+                }
+            }
+            records++;
+        }
+
+        renderer.flush();
+        return records;
+    }
+
+    /**
+     * Screenshots and attachments stay in the folder of the run that captured them.
+     * Their links are relative to that run's report page, so they are prefixed with the way from the merged page to the original one.
+     */
+    private static String getLinkPrefix(Path journal, Path output, String reportKey)
+    {
+        Path sourcePage = journal.toAbsolutePath().getParent();
+        Path targetPage = output;
+        if (!reportKey.isEmpty())
+        {
+            sourcePage = sourcePage.resolve(ReportSession.getShardFolderName(reportKey));
+            targetPage = targetPage.resolve(ReportSession.getShardFolderName(reportKey));
+        }
+        String prefix = targetPage.relativize(sourcePage).toString().replace('\\', '/');
+        return prefix.isEmpty() ? "" : prefix + "/";
+    }
+
+    private static void read(int journalIndex, Path journal, BlockingQueue<Record> queue)
+    {
+        try
+        {
+            StepJournal.read(journal, new StepJournal.Visitor()
+            {
+                @Override
+                public void testCreated(int testId, String reportKey, String testName, long timestamp)
+                {
+                    put(queue, new Record(journalIndex, true, testId, null, reportKey, testName, null, timestamp));
+                }
+
+                @Override
+                public void step(int testId, Status status, String message, String markup, String mediaPath, long timestamp)
+                {
+                    put(queue, new Record(journalIndex, false, testId, status, message, markup, mediaPath, timestamp));
+                }
+            });
+        } catch (Exception e)
+        {
+            System.err.println("Failed to read journal '" + journal + "' - " + e.getMessage());
+        } finally
+        {
+            put(queue, Record.end(journalIndex));
+        }
+    }
+
+    private static void put(BlockingQueue<Record> queue, Record record)
+    {
+        try
+        {
+            queue.put(record);
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while merging journals", e);
+        }
+    }
+
+    /**
+     * One journal record on its way from a reader thread to the merging thread.
+     */
+    private static final class Record
+    {
+        private final int journalIndex;
+        private final boolean isTest;
+        private final boolean isEnd;
+        private final int testId;
+        private final Status status;
+        private final String first;
+        private final String second;
+        private final String third;
+        private final long timestamp;
+
+        private Record(int journalIndex, boolean isTest, int testId, Status status, String first, String second, String third, long timestamp)
+        {
+            this(journalIndex, isTest, false, testId, status, first, second, third, timestamp);
+        }
+
+        private Record(int journalIndex, boolean isTest, boolean isEnd, int testId, Status status, String first, String second, String third, long timestamp)
+        {
+            this.journalIndex = journalIndex;
+            this.isTest = isTest;
+            this.isEnd = isEnd;
+            this.testId = testId;
+            this.status = status;
+            this.first = first;
+            this.second = second;
+            this.third = third;
+            this.timestamp = timestamp;
+        }
+
+        static Record end(int journalIndex)
+        {
+            return new Record(journalIndex, false, true, 0, null, null, null, null, 0L);
+        }
+    }
+}
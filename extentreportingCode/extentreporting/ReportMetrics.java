@@ -0,0 +1,240 @@
+package extentreporting;
+
+import com.google.gson.GsonBuilder;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ReportMetrics measures the time the reporter itself adds to a run: per operation (flush, screenshot, getTest, ...) and per test.
+ * Durations go into a log2 histogram of microseconds, so percentiles are approximate to a factor of two but recording is lock-free.
+ * Bytes written to screenshots and attachments are counted per kind.
+ * <p>
+ * Enabled with -Dextent.metrics=true. When disabled, start() returns 0 and record() returns straight away.
+ * A ReportSession writes the summary to metrics.json in its report folder when it is closed.
+ */
+public class ReportMetrics
+{
+    public static final boolean DEFAULT_ENABLED = Boolean.getBoolean("extent.metrics");
+
+    public enum Operation
+    {
+        STEP, FLUSH, SCREENSHOT, GET_TEST, CURRENT_TEST_NAME, FORMAT_XML, FORMAT_JSON, TABLE
+    }
+
+    public enum Output
+    {
+        SCREENSHOT, ATTACHMENT
+    }
+
+    //Time spent outside a test, e.g. by the background flush thread.
+    public static final String UNATTRIBUTED = "(background)";
+
+    private static final int BUCKETS = 40;
+
+    public static final ReportMetrics DISABLED = new ReportMetrics(false);
+
+    private final boolean isEnabled;
+    private final Map<Operation, Histogram> operations = new EnumMap<>(Operation.class);
+    private final Map<Output, LongAdder> bytesWritten = new EnumMap<>(Output.class);
+    private final ConcurrentMap<String, Histogram> tests = new ConcurrentHashMap<>();
+
+    public ReportMetrics()
+    {
+        this(DEFAULT_ENABLED);
+    }
+
+    public ReportMetrics(boolean isEnabled)
+    {
+        this.isEnabled = isEnabled;
+        for (Operation operation : Operation.values())
+        {
+            operations.put(operation, new Histogram());
+        }
+        for (Output output : Output.values())
+        {
+            bytesWritten.put(output, new LongAdder());
+        }
+    }
+
+    public boolean isEnabled()
+    {
+        return isEnabled;
+    }
+
+    /**
+     * Start time for record(), or 0 when metrics are disabled.
+     */
+    public long start()
+    {
+        return isEnabled ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Records the time since start against operation and the test running on this thread.
+     */
+    public void record(Operation operation, long start)
+    {
+        if (!isEnabled)
+            return;
+
+        long nanos = System.nanoTime() - start;
+        operations.get(operation).add(nanos);
+
+        String testName = TestContext.getCurrentTestName();
+        String key = (testName != null) ? testName : UNATTRIBUTED;
+        Histogram test = tests.get(key);
+        if (test == null)
+            test = tests.computeIfAbsent(key, name -> new Histogram());
+        test.add(nanos);
+    }
+
+    public void addBytesWritten(Output output, long bytes)
+    {
+        if (isEnabled) bytesWritten.get(output).add(bytes);
+    }
+
+    public long getCount(Operation operation)
+    {
+        return operations.get(operation).count.sum();
+    }
+
+    public long getTotalNanos(Operation operation)
+    {
+        return operations.get(operation).totalNanos.sum();
+    }
+
+    /**
+     * Approximate percentile, e.g. 0.99, of the durations of operation in nanoseconds.
+     */
+    public long getPercentileNanos(Operation operation, double percentile)
+    {
+        return operations.get(operation).percentileNanos(percentile);
+    }
+
+    public long getBytesWritten(Output output)
+    {
+        return bytesWritten.get(output).sum();
+    }
+
+    /**
+     * Total time the reporter spent on behalf of testName, in nanoseconds.
+     */
+    public long getTestNanos(String testName)
+    {
+        Histogram test = tests.get(testName);
+        return (test != null) ? test.totalNanos.sum() : 0L;
+    }
+
+    /**
+     * One line for the report's system info, e.g. "1523 ops, 412 ms (flush 310 ms, screenshot 80 ms)".
+     */
+    public String getSummary()
+    {
+        long count = 0;
+        long nanos = 0;
+        StringBuilder details = new StringBuilder();
+        for (Map.Entry<Operation, Histogram> entry : operations.entrySet())
+        {
+            long operationCount = entry.getValue().count.sum();
+            if (operationCount == 0)
+                continue;
+            count += operationCount;
+            nanos += entry.getValue().totalNanos.sum();
+            if (details.length() > 0) details.append(", ");
+            details.append(entry.getKey().name().toLowerCase()).append(' ').append(entry.getValue().totalNanos.sum() / 1_000_000).append(" ms");
+        }
+        return count + " ops, " + (nanos / 1_000_000) + " ms (" + details + ")";
+    }
+
+    /**
+     * Operations, bytes written and per test overhead as JSON. Durations are in microseconds.
+     */
+    public String toJson()
+    {
+        Map<String, Object> summary = new LinkedHashMap<>();
+
+        Map<String, Object> operationSummary = new LinkedHashMap<>();
+        for (Map.Entry<Operation, Histogram> entry : operations.entrySet())
+        {
+            if (entry.getValue().count.sum() > 0)
+                operationSummary.put(entry.getKey().name(), entry.getValue().toMap());
+        }
+        summary.put("operations", operationSummary);
+
+        Map<String, Long> bytesSummary = new LinkedHashMap<>();
+        for (Map.Entry<Output, LongAdder> entry : bytesWritten.entrySet())
+        {
+            bytesSummary.put(entry.getKey().name(), entry.getValue().sum());
+        }
+        summary.put("bytesWritten", bytesSummary);
+
+        Map<String, Object> testSummary = new TreeMap<>();
+        for (Map.Entry<String, Histogram> entry : tests.entrySet())
+        {
+            testSummary.put(entry.getKey(), entry.getValue().toMap());
+        }
+        summary.put("tests", testSummary);
+
+        return new GsonBuilder().setPrettyPrinting().create().toJson(summary);
+    }
+
+    /**
+     * Bucket i counts durations below 2^i microseconds.
+     */
+    private static final class Histogram
+    {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        void add(long nanos)
+        {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            long micros = nanos / 1000;
+            int bucket = (micros == 0) ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+            buckets.incrementAndGet(bucket);
+        }
+
+        long percentileNanos(double percentile)
+        {
+            long total = count.sum();
+            if (total == 0)
+                return 0L;
+
+            long rank = (long) Math.ceil(total * percentile);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++)
+            {
+                seen += buckets.get(i);
+                if (seen >= rank)
+                    return Math.min((1L << i) * 1000, maxNanos.get());
+            }
+            return maxNanos.get();
+        }
+
+        Map<String, Object> toMap()
+        {
+            long total = count.sum();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("count", total);
+            map.put("totalMicros", totalNanos.sum() / 1000);
+            map.put("meanMicros", (total == 0) ? 0 : totalNanos.sum() / total / 1000);
+            map.put("p50Micros", percentileNanos(0.50) / 1000);
+            map.put("p90Micros", percentileNanos(0.90) / 1000);
+            map.put("p99Micros", percentileNanos(0.99) / 1000);
+            map.put("maxMicros", maxNanos.get() / 1000);
+            return map;
+        }
+    }
+}
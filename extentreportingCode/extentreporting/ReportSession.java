@@ -0,0 +1,562 @@
+package extentreporting;
+
+import com.aventstack.extentreports.AnalysisStrategy;
+import com.aventstack.extentreports.ExtentReports;
+import com.aventstack.extentreports.ExtentTest;
+import com.aventstack.extentreports.reporter.ExtentSparkReporter;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ReportSession owns everything written to one report directory: the ExtentReports object and its flush scheduler,
+ * the log sink (Output.txt when reporting is turned off), the screenshot writer and the screenshot counter.
+ * Every ExtentReporter has its own session, so several reporters can run in the same JVM without sharing output locations or file names.
+ * ReportSessionManager can instead hand the same session to every reporter in the JVM.
+ * <p>
+ * A session sharded by class gives every test class its own lightweight ExtentReport.html in a sub folder, with an index.html linking them.
+ * <p>
+ * With -Dextent.render=incremental the flushes during the run only update LiveReport.html, see IncrementalHtmlReporter,
+ * and ExtentReport.html is rendered once, by the final flush.
+ * <p>
+ * close() writes everything still pending and stops the session's threads. It runs from a single JVM shutdown hook per session
+ * when the session isn't closed explicitly, which covers the flush scheduler, the log sink and the screenshot writer.
+ */
+public class ReportSession
+{
+    public static final String DEFAULT_RENDER_MODE = System.getProperty("extent.render", "spark");
+
+    private final ReportLayout layout;
+    private final String reportDirectory;
+    private final boolean isReportingTurnedOff;
+    private final boolean isShardedByClass;
+    private final AtomicInteger screenshotCounter = new AtomicInteger(0);
+    private final AtomicInteger attachmentCounter = new AtomicInteger(0);
+    private volatile boolean isClosing = false;
+    private final AtomicBoolean isClosed = new AtomicBoolean(false);
+    private final Thread shutdownHook = TestContext.newThread(this::close, "extent-session-close");
+    private volatile LogSink logSink;
+    private final ConcurrentMap<String, ExtentReports> shards = new ConcurrentHashMap<>();
+    private final ConcurrentMap<ExtentTest, StepBuffer> stepBuffers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<ExtentReports, ReportLayout> incrementalReports = new ConcurrentHashMap<>();
+    //ReentrantLock rather than synchronized: these sections create folders and files, which must not pin a virtual thread's carrier.
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReportMetrics metrics = new ReportMetrics();
+    private ExtentReports report;
+    private ReportFlushScheduler flushScheduler;
+    private ScreenshotWriter screenshotWriter;
+    private ScreenshotStore screenshotStore;
+    private StepJournal journal;
+
+    public ReportSession(String reportDirectory, boolean isReportingTurnedOff)
+    {
+        this(Paths.get(reportDirectory), isReportingTurnedOff, false);
+    }
+
+    public ReportSession(String reportDirectory, boolean isReportingTurnedOff, boolean isShardedByClass)
+    {
+        this(Paths.get(reportDirectory), isReportingTurnedOff, isShardedByClass);
+    }
+
+    public ReportSession(Path reportDirectory, boolean isReportingTurnedOff)
+    {
+        this(reportDirectory, isReportingTurnedOff, false);
+    }
+
+    /**
+     * @param reportDirectory folder to create for the session. A numbered sibling is used when it already exists.
+     */
+    public ReportSession(Path reportDirectory, boolean isReportingTurnedOff, boolean isShardedByClass)
+    {
+        this.layout = createLayout(reportDirectory);
+        this.reportDirectory = layout.getRootPrefix();
+        this.isReportingTurnedOff = isReportingTurnedOff;
+        this.isShardedByClass = isShardedByClass;
+        this.logSink = createLogSink();
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+
+        if (isReportingTurnedOff)
+            return;
+
+        //Steps only mark the report dirty, the scheduler re-renders the html in the background.
+        flushScheduler = new ReportFlushScheduler();
+        flushScheduler.setBeforeFlush(this::publishBufferedSteps);
+        flushScheduler.setMetrics(metrics);
+        //The default per-class session is never closed explicitly, so the final steps run from the scheduler's shutdown, also on JVM exit.
+        flushScheduler.setBeforeFinalFlush(this::beforeFinalFlush);
+        flushScheduler.setAfterFinalFlush(this::closeJournal);
+
+        if (StepJournal.DEFAULT_ENABLED)
+            journal = openJournal();
+
+        if (!isShardedByClass)
+            report = createReport(layout);
+    }
+
+    private static ReportLayout createLayout(Path reportDirectory)
+    {
+        try
+        {
+            return ReportLayout.createUnique(reportDirectory);
+        } catch (Exception e)
+        {
+            System.err.println("Failed to create report folder '" + reportDirectory + "' - " + e.getMessage());
+            return new ReportLayout(reportDirectory);
+        }
+    }
+
+    private ExtentReports createReport(ReportLayout directory)
+    {
+        ExtentReports extentReports;
+        if (isIncrementalRendering())
+        {
+            extentReports = new ExtentReports();
+            extentReports.attachReporter(new IncrementalHtmlReporter(directory.getRoot()));
+            extentReports.setAnalysisStrategy(AnalysisStrategy.TEST);
+            incrementalReports.put(extentReports, directory);
+        } else
+            extentReports = createExtentReports(directory);
+        extentReports.flush();
+
+        flushScheduler.register(extentReports);
+        return extentReports;
+    }
+
+    /**
+     * True when -Dextent.render=incremental, see IncrementalHtmlReporter.
+     */
+    public static boolean isIncrementalRendering()
+    {
+        return "incremental".equalsIgnoreCase(DEFAULT_RENDER_MODE);
+    }
+
+    /**
+     * An ExtentReports writing ExtentReport.html to directory, set up the way every report of this project looks.
+     */
+    static ExtentReports createExtentReports(ReportLayout directory)
+    {
+        ExtentReports extentReports = new ExtentReports();
+        extentReports.attachReporter(createSparkReporter(directory));
+        extentReports.setAnalysisStrategy(AnalysisStrategy.TEST);
+        return extentReports;
+    }
+
+    private static ExtentSparkReporter createSparkReporter(ReportLayout directory)
+    {
+        ExtentSparkReporter html = new ExtentSparkReporter(directory.resolve(ReportLayout.REPORT_FILE_NAME).toString());
+        //https://stackoverflow.com/questions/53790432/how-to-enhance-the-image-size-of-the-screenshot-captured-for-extent-report
+        String css = ".r-img {width: 50%;}";
+        html.config().setCSS(css);
+        return html;
+    }
+
+    private StepJournal openJournal()
+    {
+        try
+        {
+            return new StepJournal(layout.resolve(StepJournal.FILE_NAME));
+        } catch (Exception e)
+        {
+            System.err.println("Failed to create the step journal - " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * -Dextent.log.sink picks the sink: async (default) buffers lines for a background writer, sync writes on the calling thread and none drops them.
+     * -Dextent.log.flushPolicy sets the AsyncLogSink.FlushPolicy, WHEN_IDLE by default.
+     */
+    private LogSink createLogSink()
+    {
+        String sinkType = System.getProperty("extent.log.sink", "async");
+        if ("none".equalsIgnoreCase(sinkType))
+            return NullLogSink.INSTANCE;
+
+        LogSink sink = isReportingTurnedOff ? openOutputFile() : new ConsoleLogSink();
+        if ("sync".equalsIgnoreCase(sinkType))
+            return sink;
+
+        AsyncLogSink.FlushPolicy flushPolicy = AsyncLogSink.FlushPolicy.valueOf(System.getProperty("extent.log.flushPolicy", "WHEN_IDLE").toUpperCase());
+        return new AsyncLogSink(sink, flushPolicy, AsyncLogSink.DEFAULT_BUFFER_SIZE);
+    }
+
+    private LogSink openOutputFile()
+    {
+        try
+        {
+            return new FileLogSink(layout.resolve(ReportLayout.OUTPUT_FILE_NAME));
+        } catch (Exception e)
+        {
+            System.err.println("Failed to create Output.txt, falling back to the console - " + e.getMessage());
+            return new ConsoleLogSink();
+        }
+    }
+
+    /**
+     * The session folder, ending with the platform separator.
+     */
+    public String getReportDirectory()
+    {
+        return reportDirectory;
+    }
+
+    /**
+     * The folder tree of the session. Sub folders are created once, on first use.
+     */
+    public ReportLayout getLayout()
+    {
+        return layout;
+    }
+
+    public boolean isReportingTurnedOff()
+    {
+        return isReportingTurnedOff;
+    }
+
+    public boolean isShardedByClass()
+    {
+        return isShardedByClass;
+    }
+
+    /**
+     * Sink that step messages are printed to. Output.txt when reporting is turned off, otherwise the console.
+     */
+    public LogSink getLogSink()
+    {
+        return logSink;
+    }
+
+    /**
+     * Replaces the sink step messages are printed to. The previous sink is flushed and closed.
+     */
+    public void setLogSink(LogSink logSink)
+    {
+        LogSink previous = this.logSink;
+        this.logSink = logSink;
+        previous.close();
+    }
+
+    /**
+     * Null when reporting is turned off or the session is sharded by class.
+     */
+    public ExtentReports getReport()
+    {
+        return report;
+    }
+
+    /**
+     * The report that tests of testClassName are added to.
+     * For a sharded session this is the class's own report, created on first use. Otherwise it is the single session report.
+     * Null when reporting is turned off.
+     */
+    public ExtentReports getReport(String testClassName)
+    {
+        if (isReportingTurnedOff || !isShardedByClass)
+            return report;
+
+        ExtentReports shard = shards.get(testClassName);
+        return (shard != null) ? shard : createShard(testClassName);
+    }
+
+    private ExtentReports createShard(String testClassName)
+    {
+        lock.lock();
+        try
+        {
+            ExtentReports shard = shards.get(testClassName);
+            if (shard != null)
+                return shard;
+
+            shard = createReport(layout.getShard(getShardFolderName(testClassName)));
+            shards.put(testClassName, shard);
+            writeIndex();
+            return shard;
+        } finally
+        {
+            lock.unlock();
+        }
+    }
+
+    static String getShardFolderName(String testClassName)
+    {
+        return testClassName.replaceAll("[\\\\/:*?\"<>|]", "_");
+    }
+
+    /**
+     * index.html at the root of a sharded session links to the report of every test class.
+     */
+    private void writeIndex()
+    {
+        StringBuilder html = new StringBuilder();
+        html.append("<!DOCTYPE html>\n<html>\n<head><meta charset=\"utf-8\"><title>Extent Reports</title></head>\n<body>\n<h1>Extent Reports</h1>\n<ul>\n");
+        for (String testClassName : new TreeMap<>(shards).keySet())
+        {
+            String folder = getShardFolderName(testClassName);
+            html.append("<li><a href=\"").append(folder).append("/ExtentReport.html\">").append(testClassName).append("</a></li>\n");
+        }
+        html.append("</ul>\n</body>\n</html>\n");
+
+        try (PrintStream index = new PrintStream(layout.resolve("index.html").toFile(), "UTF-8"))
+        {
+            index.print(html);
+        } catch (Exception e)
+        {
+            System.err.println("Failed to write report index - " + e.getMessage());
+        }
+    }
+
+    /**
+     * Prefix that makes a path relative to the session folder resolve from a report page.
+     * Shard pages live one folder below the session folder.
+     */
+    public String getRelativeRoot()
+    {
+        return isShardedByClass ? "../" : "./";
+    }
+
+    /**
+     * The journal every test and step of this session is appended to, see StepJournal. Null unless -Dextent.journal=true.
+     */
+    public StepJournal getJournal()
+    {
+        return journal;
+    }
+
+    /**
+     * Key of the report testClassName's tests are added to, as recorded in the journal. Empty unless the session is sharded by class.
+     */
+    public String getReportKey(String testClassName)
+    {
+        return isShardedByClass ? testClassName : "";
+    }
+
+    /**
+     * Reporting overhead of this session. Only recorded with -Dextent.metrics=true.
+     */
+    public ReportMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * Null when reporting is turned off.
+     */
+    public ReportFlushScheduler getFlushScheduler()
+    {
+        return flushScheduler;
+    }
+
+    /**
+     * Counter must increment for unique image names as well as image order.
+     */
+    public int nextScreenshotNumber()
+    {
+        return screenshotCounter.incrementAndGet();
+    }
+
+    /**
+     * Reserves a unique attachment file name, relative to the session folder. e.g. Attachments/3.xml
+     * The Attachments folder is created with the first attachment.
+     */
+    public String nextAttachmentName(String extension)
+    {
+        layout.getAttachmentDirectory();
+        return ReportLayout.ATTACHMENTS + "/" + attachmentCounter.incrementAndGet() + extension;
+    }
+
+    /**
+     * Absolute path of a file named by nextAttachmentName() or the ScreenshotStore.
+     */
+    public Path resolve(String relativePath)
+    {
+        return layout.resolve(relativePath);
+    }
+
+    /**
+     * The ScreenshotWriter is created on the first capture, which also creates the Screenshots folder within the report folder.
+     */
+    public ScreenshotWriter getScreenshotWriter()
+    {
+        lock.lock();
+        try
+        {
+            if (screenshotWriter == null)
+                screenshotWriter = new ScreenshotWriter(layout.getScreenshotDirectory());
+            return screenshotWriter;
+        } finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The content addressed store every capture of this session is saved through. Created on the first capture.
+     */
+    public ScreenshotStore getScreenshotStore()
+    {
+        lock.lock();
+        try
+        {
+            if (screenshotStore == null)
+            {
+                screenshotStore = new ScreenshotStore(getScreenshotWriter(), layout.getScreenshotDirectory(), screenshotCounter);
+                screenshotStore.setMetrics(metrics);
+            }
+            return screenshotStore;
+        } finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The buffer that collects the steps of test until they are published into report. Created on first use.
+     */
+    public StepBuffer getStepBuffer(ExtentTest test, ExtentReports report)
+    {
+        return getStepBuffer(test, report, false);
+    }
+
+    /**
+     * As getStepBuffer(test, report). A thread-confined buffer is created on first use when isThreadConfined is set,
+     * which keeps its steps out of the report until publishSteps() is called for the test.
+     */
+    public StepBuffer getStepBuffer(ExtentTest test, ExtentReports report, boolean isThreadConfined)
+    {
+        StepBuffer buffer = stepBuffers.get(test);
+        return (buffer != null) ? buffer : stepBuffers.computeIfAbsent(test, key -> new StepBuffer(key, report, isThreadConfined));
+    }
+
+    /**
+     * Publishes the buffered steps of test into its report in one operation, under the flush lock.
+     * Returns the number of steps published.
+     */
+    public int publishSteps(ExtentTest test)
+    {
+        StepBuffer buffer = stepBuffers.remove(test);
+        if (buffer == null)
+            return 0;
+
+        int[] published = new int[1];
+        if (flushScheduler != null)
+            flushScheduler.runWithFlushLock(() -> published[0] = buffer.publish());
+        else
+            published[0] = buffer.publish();
+        return published[0];
+    }
+
+    /**
+     * Publishes the buffered steps of every test in report that the calling thread owns, including thread-confined buffers.
+     * Buffers of other threads are left to their owner, or the flush thread. Returns the number of steps published.
+     */
+    public int publishOwnSteps(ExtentReports report)
+    {
+        int published = 0;
+        for (StepBuffer buffer : stepBuffers.values())
+        {
+            if (buffer.getReport() == report && buffer.isOwnedByCurrentThread())
+                published += publishSteps(buffer.getTest());
+        }
+        return published;
+    }
+
+    /**
+     * Publishes the buffered steps of every test in report. Runs on the flush thread right before the report is flushed.
+     * Thread-confined buffers wait for their test to finish, unless the session is closing or the JVM is exiting.
+     */
+    private void publishBufferedSteps(ExtentReports report)
+    {
+        boolean isFinalFlush = isClosing || flushScheduler.isShutdown();
+        for (StepBuffer buffer : stepBuffers.values())
+        {
+            if (buffer.getReport() == report && (isFinalFlush || !buffer.isThreadConfined()) && !buffer.isEmpty())
+                buffer.publish();
+        }
+
+        //An incrementally rendered report gets its Spark reporter for the final flush only, which renders ExtentReport.html once.
+        ReportLayout directory = isFinalFlush ? incrementalReports.remove(report) : null;
+        if (directory != null)
+            report.attachReporter(createSparkReporter(directory));
+    }
+
+    /**
+     * Adds the overhead summary to every report of the session, ahead of their final flush, and writes the details to metrics.json.
+     */
+    private void writeMetrics()
+    {
+        String summary = metrics.getSummary();
+        if (flushScheduler != null)
+            flushScheduler.runWithFlushLock(() ->
+            {
+                if (report != null) report.setSystemInfo("Reporting overhead", summary);
+                for (ExtentReports shard : shards.values())
+                {
+                    shard.setSystemInfo("Reporting overhead", summary);
+                }
+            });
+
+        try (PrintStream json = new PrintStream(layout.resolve("metrics.json").toFile(), "UTF-8"))
+        {
+            json.print(metrics.toJson());
+        } catch (Exception e)
+        {
+            System.err.println("Failed to write metrics.json - " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs once, ahead of the final flush of the session's reports.
+     */
+    private void beforeFinalFlush()
+    {
+        isClosing = true;
+        if (metrics.isEnabled()) writeMetrics();
+    }
+
+    /**
+     * Forces the journal to disk and trims its unused tail, once every step has been recorded.
+     */
+    private void closeJournal()
+    {
+        if (journal != null) journal.close();
+    }
+
+    /**
+     * Writes everything still pending and releases the session's threads and streams. Safe to call more than once.
+     */
+    public void close()
+    {
+        if (!isClosed.compareAndSet(false, true))
+            return;
+
+        if (flushScheduler != null)
+            flushScheduler.shutdown();
+        else
+            beforeFinalFlush();
+
+        lock.lock();
+        try
+        {
+            if (screenshotWriter != null) screenshotWriter.shutdown();
+        } finally
+        {
+            lock.unlock();
+        }
+
+        logSink.close();
+
+        try
+        {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e)
+        {//Expected when this is already running as the shutdown hook.
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package extentreporting;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ReportSessionManager hands a single JVM-wide ReportSession to every ExtentReporter when the shared session is enabled.
+ * All test classes are then aggregated into one report model instead of one report folder (and Spark renderer) per class.
+ * <p>
+ * Enable it with -Dextent.sharedSession=true or setSharedSessionEnabled(true) before the first reporter is set up.
+ * -Dextent.shardByClass=true additionally writes one page per test class plus an index.html.
+ * ExtentListener closes the shared session when the JUnit launcher finishes, the session's shutdown hook covers other runners.
+ */
+public final class ReportSessionManager
+{
+    private static volatile boolean isSharedSessionEnabled = Boolean.getBoolean("extent.sharedSession");
+    private static volatile boolean isShardedByClass = Boolean.getBoolean("extent.shardByClass");
+    private static final String suiteName = System.getProperty("extent.suiteName", "TestSuite");
+    private static final ReentrantLock lock = new ReentrantLock();
+    private static volatile ReportSession sharedSession;
+
+    private ReportSessionManager()
+    {
+    }
+
+    public static boolean isSharedSessionEnabled()
+    {
+        return isSharedSessionEnabled;
+    }
+
+    public static void setSharedSessionEnabled(boolean isEnabled)
+    {
+        isSharedSessionEnabled = isEnabled;
+    }
+
+    public static void setShardedByClass(boolean isSharded)
+    {
+        isShardedByClass = isSharded;
+    }
+
+    /**
+     * Returns the shared session, creating it on first use.
+     * The first reporter to ask decides whether reporting is turned off for the whole run.
+     */
+    public static ReportSession getSharedSession(boolean isReportingTurnedOff)
+    {
+        ReportSession session = sharedSession;
+        if (session != null)
+            return session;
+
+        lock.lock();
+        try
+        {
+            if (sharedSession == null)
+            {
+                sharedSession = new ReportSession(ReportLayout.getReportsRoot().resolve(suiteName).resolve(ReportFormatter.getCurTime()), isReportingTurnedOff, isShardedByClass);
+                ExtentReporter.setReportDirectory(sharedSession.getReportDirectory());
+            }
+            return sharedSession;
+        } finally
+        {
+            lock.unlock();
+        }
+    }
+
+    public static boolean isSharedSession(ReportSession session)
+    {
+        return session != null && session == sharedSession;
+    }
+
+    /**
+     * Writes the final state of the shared session. A later reporter starts a new shared session.
+     */
+    public static void closeSharedSession()
+    {
+        lock.lock();
+        try
+        {
+            if (sharedSession == null)
+                return;
+
+            sharedSession.close();
+            sharedSession = null;
+        } finally
+        {
+            lock.unlock();
+        }
+    }
+}
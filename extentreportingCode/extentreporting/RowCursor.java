@@ -0,0 +1,68 @@
+package extentreporting;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * RowCursor walks a table one row at a time, the same way a ResultSet does.
+ * stepPassedWithTable() reads it row by row, so the full table never has to be in memory.
+ */
+public interface RowCursor
+{
+    /**
+     * Moves to the next row. Returns false once there are no more rows.
+     */
+    boolean next();
+
+    int getColumnCount();
+
+    /**
+     * Value of the column in the current row. Columns start at 1, like a ResultSet.
+     */
+    String getString(int column);
+
+    /**
+     * Adapts a ResultSet. SQLExceptions are rethrown as IllegalStateException.
+     */
+    static RowCursor of(ResultSet resultSet)
+    {
+        return new RowCursor()
+        {
+            @Override
+            public boolean next()
+            {
+                try
+                {
+                    return resultSet.next();
+                } catch (SQLException e)
+                {
+                    throw new IllegalStateException("Failed to read next row", e);
+                }
+            }
+
+            @Override
+            public int getColumnCount()
+            {
+                try
+                {
+                    return resultSet.getMetaData().getColumnCount();
+                } catch (SQLException e)
+                {
+                    throw new IllegalStateException("Failed to read column count", e);
+                }
+            }
+
+            @Override
+            public String getString(int column)
+            {
+                try
+                {
+                    return resultSet.getString(column);
+                } catch (SQLException e)
+                {
+                    throw new IllegalStateException("Failed to read column " + column, e);
+                }
+            }
+        };
+    }
+}
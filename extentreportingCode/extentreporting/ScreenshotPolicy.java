@@ -0,0 +1,185 @@
+package extentreporting;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * ScreenshotPolicy describes how a captured PNG is processed before it is stored: the format it is saved in and the width it is downscaled to.
+ * ORIGINAL keeps the driver's full resolution PNG untouched.
+ * Policies are immutable and can be set per Status on the ScreenshotStore, e.g. ORIGINAL on failure and small JPEG thumbnails on pass.
+ * <p>
+ * The JDK has no WebP encoder, so the lossy option is JPEG. PALETTE_PNG reduces the image to 256 colours, which suits mostly flat UI screenshots.
+ */
+public final class ScreenshotPolicy
+{
+    public enum Format
+    {
+        PNG, PALETTE_PNG, JPEG
+    }
+
+    public static final ScreenshotPolicy ORIGINAL = new ScreenshotPolicy(Format.PNG, 0, 1f);
+
+    private final Format format;
+    private final int maxWidth;
+    private final float quality;
+
+    /**
+     * @param maxWidth images wider than this are downscaled, keeping their aspect ratio. 0 or less keeps the original width.
+     * @param quality JPEG compression quality between 0 and 1. Ignored by the PNG formats.
+     */
+    public ScreenshotPolicy(Format format, int maxWidth, float quality)
+    {
+        this.format = format;
+        this.maxWidth = Math.max(0, maxWidth);
+        this.quality = Math.max(0f, Math.min(1f, quality));
+    }
+
+    public static ScreenshotPolicy png(int maxWidth)
+    {
+        return new ScreenshotPolicy(Format.PNG, maxWidth, 1f);
+    }
+
+    public static ScreenshotPolicy palettePng(int maxWidth)
+    {
+        return new ScreenshotPolicy(Format.PALETTE_PNG, maxWidth, 1f);
+    }
+
+    public static ScreenshotPolicy jpeg(int maxWidth, float quality)
+    {
+        return new ScreenshotPolicy(Format.JPEG, maxWidth, quality);
+    }
+
+    /**
+     * Reads prefix.format, prefix.maxWidth and prefix.quality, e.g. -Dextent.screenshot.pass.format=JPEG, falling back to defaults for any that are missing.
+     */
+    public static ScreenshotPolicy fromProperties(String prefix, ScreenshotPolicy defaults)
+    {
+        String format = System.getProperty(prefix + ".format");
+        String maxWidth = System.getProperty(prefix + ".maxWidth");
+        String quality = System.getProperty(prefix + ".quality");
+        if (format == null && maxWidth == null && quality == null)
+            return defaults;
+
+        return new ScreenshotPolicy(
+                (format != null) ? Format.valueOf(format.toUpperCase()) : defaults.format,
+                (maxWidth != null) ? Integer.parseInt(maxWidth) : defaults.maxWidth,
+                (quality != null) ? Float.parseFloat(quality) : defaults.quality);
+    }
+
+    public Format getFormat()
+    {
+        return format;
+    }
+
+    public int getMaxWidth()
+    {
+        return maxWidth;
+    }
+
+    public float getQuality()
+    {
+        return quality;
+    }
+
+    public boolean isOriginal()
+    {
+        return format == Format.PNG && maxWidth == 0;
+    }
+
+    public String getExtension()
+    {
+        return (format == Format.JPEG) ? ".jpg" : ".png";
+    }
+
+    /**
+     * Distinguishes the stored file names of the same capture processed by different policies. Empty for ORIGINAL.
+     */
+    public String getSuffix()
+    {
+        if (isOriginal())
+            return "";
+
+        StringBuilder suffix = new StringBuilder("_");
+        suffix.append(format == Format.JPEG ? "jpg" : format == Format.PALETTE_PNG ? "pal" : "png");
+        if (maxWidth > 0) suffix.append("_w").append(maxWidth);
+        if (format == Format.JPEG) suffix.append("_q").append(Math.round(quality * 100));
+        return suffix.toString();
+    }
+
+    /**
+     * Crops, downscales and re-encodes a PNG capture.
+     * @param crop area of the capture to keep, in image pixels. Null keeps the whole capture.
+     */
+    public byte[] apply(byte[] png, Rectangle crop) throws IOException
+    {
+        if (isOriginal() && crop == null)
+            return png;
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+        if (image == null)
+            throw new IOException("Screenshot is not a readable image");
+
+        if (crop != null)
+        {
+            Rectangle area = crop.intersection(new Rectangle(0, 0, image.getWidth(), image.getHeight()));
+            if (!area.isEmpty())
+                image = image.getSubimage(area.x, area.y, area.width, area.height);
+        }
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (maxWidth > 0 && width > maxWidth)
+        {
+            height = Math.max(1, Math.round(height * (maxWidth / (float) width)));
+            width = maxWidth;
+        }
+
+        int imageType = (format == Format.JPEG) ? BufferedImage.TYPE_INT_RGB
+                : (format == Format.PALETTE_PNG) ? BufferedImage.TYPE_BYTE_INDEXED
+                : BufferedImage.TYPE_INT_ARGB;
+        BufferedImage processed = new BufferedImage(width, height, imageType);
+        Graphics2D graphics = processed.createGraphics();
+        try
+        {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally
+        {
+            graphics.dispose();
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        if (format == Format.JPEG)
+            writeJpeg(processed, output);
+        else
+            ImageIO.write(processed, "png", output);
+        return output.toByteArray();
+    }
+
+    private void writeJpeg(BufferedImage image, ByteArrayOutputStream output) throws IOException
+    {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpg").next();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(output))
+        {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally
+        {
+            writer.dispose();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package extentreporting;
+
+import com.aventstack.extentreports.Status;
+
+import java.awt.Rectangle;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ScreenshotStore decides where a captured image is saved within the Screenshots folder of a ReportSession.
+ * Images are content addressed: the file is named after a hash of its bytes, so identical captures are written once and every later step simply references the same file.
+ * The store keeps a reference count per image, which shows how often each one is reused. An image whose write fails is forgotten,
+ * so the next identical capture writes it again instead of referencing the missing file.
+ * <p>
+ * Each capture is processed by the ScreenshotPolicy of its step's Status on a writer thread, e.g. full quality on failure and thumbnails on pass.
+ * -Dextent.screenshot.format, .maxWidth and .quality set the policy for every status, -Dextent.screenshot.fail.format etc. override it for one status.
+ * <p>
+ * -Dextent.screenshot.dedupe=false restores the old counter based names, e.g. 1_PASSED.png, 2_FAILED.png.
+ */
+public class ScreenshotStore
+{
+    public static final boolean DEFAULT_DEDUPE = Boolean.parseBoolean(System.getProperty("extent.screenshot.dedupe", "true"));
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    //128 bits of SHA-256 keep the names short while collisions stay out of reach for any realistic number of captures.
+    private static final int HASH_BYTES = 16;
+
+    private final ScreenshotWriter writer;
+    private final Path screenshotDirectory;
+    private final boolean isDeduplicating;
+    private final AtomicInteger screenshotCounter;
+    private final ConcurrentMap<String, AtomicInteger> references = new ConcurrentHashMap<>();
+    private final AtomicLong bytesWritten = new AtomicLong(0);
+    private final AtomicLong bytesSaved = new AtomicLong(0);
+    private final ConcurrentMap<Status, ScreenshotPolicy> policies = new ConcurrentHashMap<>();
+    private volatile ReportMetrics metrics = ReportMetrics.DISABLED;
+
+    /**
+     * @param screenshotDirectory absolute folder the images are written to
+     * @param screenshotCounter the session's counter, used for image names when deduplication is off
+     */
+    public ScreenshotStore(ScreenshotWriter writer, Path screenshotDirectory, AtomicInteger screenshotCounter)
+    {
+        this(writer, screenshotDirectory, screenshotCounter, DEFAULT_DEDUPE);
+    }
+
+    public ScreenshotStore(ScreenshotWriter writer, Path screenshotDirectory, AtomicInteger screenshotCounter, boolean isDeduplicating)
+    {
+        this.writer = writer;
+        this.screenshotDirectory = screenshotDirectory;
+        this.screenshotCounter = screenshotCounter;
+        this.isDeduplicating = isDeduplicating;
+
+        ScreenshotPolicy defaultPolicy = ScreenshotPolicy.fromProperties("extent.screenshot", ScreenshotPolicy.ORIGINAL);
+        for (Status status : Status.values())
+        {
+            policies.put(status, ScreenshotPolicy.fromProperties("extent.screenshot." + status.name().toLowerCase(), defaultPolicy));
+        }
+    }
+
+    /**
+     * Where the bytes of processed images are counted.
+     */
+    public void setMetrics(ReportMetrics metrics)
+    {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Processing applied to captures of steps with the given status from now on.
+     */
+    public void setPolicy(Status status, ScreenshotPolicy policy)
+    {
+        policies.put(status, policy);
+    }
+
+    /**
+     * Processing applied to captures of every status from now on.
+     */
+    public void setPolicy(ScreenshotPolicy policy)
+    {
+        for (Status status : Status.values())
+        {
+            policies.put(status, policy);
+        }
+    }
+
+    public ScreenshotPolicy getPolicy(Status status)
+    {
+        return policies.get(status);
+    }
+
+    /**
+     * Saves image unless an identical one is already stored, and returns its path relative to the session folder. e.g. Screenshots/3fa2...9c.png
+     */
+    public String store(byte[] image, boolean isPass)
+    {
+        return store(image, isPass ? Status.PASS : Status.FAIL, null);
+    }
+
+    /**
+     * Saves image, processed by the policy of status and cropped to crop when it isn't null.
+     * The name combines the hash of the captured bytes with the crop and the policy, so the processing itself can happen on a writer thread.
+     */
+    public String store(byte[] image, Status status, Rectangle crop)
+    {
+        ScreenshotPolicy policy = getPolicy(status);
+        if (!isDeduplicating)
+        {
+            String fileName = screenshotCounter.incrementAndGet() + "_" + (isFailure(status) ? "FAILED" : "PASSED") + policy.getExtension();
+            write(fileName, image, policy, crop, () -> { });
+            return ReportLayout.SCREENSHOTS + "/" + fileName;
+        }
+
+        String fileName = hash(image) + getCropSuffix(crop) + policy.getSuffix() + policy.getExtension();
+        AtomicInteger count = references.computeIfAbsent(fileName, key -> new AtomicInteger(0));
+        if (count.getAndIncrement() == 0)
+            write(fileName, image, policy, crop, () -> references.remove(fileName, count));
+        else
+            bytesSaved.addAndGet(image.length);
+
+        return ReportLayout.SCREENSHOTS + "/" + fileName;
+    }
+
+    private void write(String fileName, byte[] image, ScreenshotPolicy policy, Rectangle crop, Runnable onFailure)
+    {
+        writer.write(screenshotDirectory.resolve(fileName), () ->
+        {
+            byte[] processed = policy.apply(image, crop);
+            bytesWritten.addAndGet(processed.length);
+            metrics.addBytesWritten(ReportMetrics.Output.SCREENSHOT, processed.length);
+            return processed;
+        }, onFailure);
+    }
+
+    private static boolean isFailure(Status status)
+    {
+        return status == Status.FAIL || status == Status.FATAL || status == Status.ERROR;
+    }
+
+    private static String getCropSuffix(Rectangle crop)
+    {
+        return (crop == null) ? "" : "_" + crop.x + "_" + crop.y + "_" + crop.width + "x" + crop.height;
+    }
+
+    public boolean isDeduplicating()
+    {
+        return isDeduplicating;
+    }
+
+    /**
+     * Number of steps that reference the image stored under fileName, 0 if it isn't stored.
+     */
+    public int getReferenceCount(String fileName)
+    {
+        AtomicInteger count = references.get(fileName);
+        return (count != null) ? count.get() : 0;
+    }
+
+    /**
+     * Number of distinct images written so far. Only tracked when deduplicating.
+     */
+    public int getUniqueCount()
+    {
+        return references.size();
+    }
+
+    /**
+     * Bytes of processed images written so far.
+     */
+    public long getBytesWritten()
+    {
+        return bytesWritten.get();
+    }
+
+    /**
+     * Captured bytes that were not written because an identical image was already stored.
+     */
+    public long getBytesSaved()
+    {
+        return bytesSaved.get();
+    }
+
+    private static String hash(byte[] image)
+    {
+        try
+        {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(image);
+            char[] hex = new char[HASH_BYTES * 2];
+            for (int i = 0; i < HASH_BYTES; i++)
+            {
+                hex[i * 2] = HEX[(digest[i] >> 4) & 0xF];
+                hex[i * 2 + 1] = HEX[digest[i] & 0xF];
+            }
+            return new String(hex);
+        } catch (NoSuchAlgorithmException e)
+        {//Every JVM is required to provide SHA-256.
+            throw new IllegalStateException(e);
+        }
+    }
+}
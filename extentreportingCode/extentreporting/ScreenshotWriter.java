@@ -0,0 +1,111 @@
+package extentreporting;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ScreenshotWriter writes captured screenshots to disk on a small pool of background threads.
+ * The test thread only grabs the image bytes from the driver, the path is known up front so it can be attached to the step immediately.
+ * The queue is bounded: once it is full the test thread writes the file itself, which keeps memory in check when a test captures faster than the disk can keep up.
+ * ReportSession calls shutdown() when it closes, also on JVM exit.
+ */
+public class ScreenshotWriter
+{
+    public static final int DEFAULT_THREADS = Integer.getInteger("extent.screenshot.threads", 2);
+    public static final int DEFAULT_QUEUE_SIZE = Integer.getInteger("extent.screenshot.queueSize", 32);
+
+    private final ThreadPoolExecutor executor;
+
+    public ScreenshotWriter(Path screenshotDirectory)
+    {
+        this(screenshotDirectory, DEFAULT_THREADS, DEFAULT_QUEUE_SIZE);
+    }
+
+    public ScreenshotWriter(Path screenshotDirectory, int threads, int queueSize)
+    {
+        //The folder is created once here rather than on every capture.
+        try
+        {
+            Files.createDirectories(screenshotDirectory);
+        } catch (Exception e)
+        {
+            System.err.println("Failed to create screenshot folder '" + screenshotDirectory + "' - " + e.getMessage());
+        }
+
+        AtomicInteger threadCount = new AtomicInteger(0);
+        this.executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueSize), runnable ->
+        {
+            Thread thread = TestContext.newThread(runnable, "extent-screenshot-writer-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, ScreenshotWriter::writeOnCaller);
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Queues the image bytes to be written to imagePath.
+     */
+    public void write(Path imagePath, byte[] image)
+    {
+        write(imagePath, () -> image);
+    }
+
+    /**
+     * Queues an image to be produced and written to imagePath on a writer thread.
+     * Lets ScreenshotStore downscale and re-encode captures off the test thread.
+     */
+    public void write(Path imagePath, Callable<byte[]> image)
+    {
+        write(imagePath, image, () -> { });
+    }
+
+    /**
+     * As write(imagePath, image), running onFailure on the writer thread when the image can't be produced or written.
+     */
+    public void write(Path imagePath, Callable<byte[]> image, Runnable onFailure)
+    {
+        executor.execute(() -> writeFile(imagePath, image, onFailure));
+    }
+
+    /**
+     * Rejected writes run on the calling thread, when the queue is full and also once shutdown() has started.
+     * Unlike CallerRunsPolicy, which drops the task once the executor is shut down, the step's screenshot file is always written.
+     */
+    private static void writeOnCaller(Runnable write, ThreadPoolExecutor executor)
+    {
+        write.run();
+    }
+
+    /**
+     * Waits for all queued screenshots to be written and stops the worker threads.
+     */
+    public void shutdown()
+    {
+        executor.shutdown();
+        try
+        {
+            if (!executor.awaitTermination(60, TimeUnit.SECONDS))
+                System.err.println("Timed out waiting for screenshots to be written - " + executor.getQueue().size() + " pending");
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeFile(Path imagePath, Callable<byte[]> image, Runnable onFailure)
+    {
+        try
+        {
+            ReportLayout.write(imagePath, image.call());
+        } catch (Exception e)
+        {
+            System.err.println("Failed writing screenshot '" + imagePath + "' - " + e.getMessage());
+            onFailure.run();
+        }
+    }
+}
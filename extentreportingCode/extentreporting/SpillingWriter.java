@@ -0,0 +1,90 @@
+package extentreporting;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Supplier;
+
+/**
+ * SpillingWriter keeps written text in memory until it grows past maxInlineLength.
+ * From then on everything, including what was buffered so far, goes to an attachment file supplied on demand.
+ * Small payloads stay inline in the report, large ones never have to be held in memory in full.
+ */
+public class SpillingWriter extends Writer
+{
+    private final int maxInlineLength;
+    private final Supplier<Path> spillFileSupplier;
+    private final StringBuilder buffer = new StringBuilder();
+    private Writer spill;
+    private Path spillFile;
+    private String preview;
+
+    public SpillingWriter(int maxInlineLength, Supplier<Path> spillFileSupplier)
+    {
+        this.maxInlineLength = maxInlineLength;
+        this.spillFileSupplier = spillFileSupplier;
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException
+    {
+        if (spill != null)
+        {
+            spill.write(chars, offset, length);
+            return;
+        }
+
+        buffer.append(chars, offset, length);
+        if (buffer.length() > maxInlineLength)
+        {
+            preview = buffer.substring(0, Math.min(buffer.length(), AttachmentMarkup.DEFAULT_PREVIEW_LENGTH));
+            spillFile = spillFileSupplier.get();
+            spill = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8);
+            spill.append(buffer);
+            buffer.setLength(0);
+        }
+    }
+
+    public boolean isSpilled()
+    {
+        return spill != null;
+    }
+
+    /**
+     * The attachment file, or null when the content fitted inline.
+     */
+    public Path getSpillFile()
+    {
+        return spillFile;
+    }
+
+    /**
+     * The buffered content. Empty once the writer has spilled.
+     */
+    public String getInlineContent()
+    {
+        return buffer.toString();
+    }
+
+    /**
+     * The start of the content, up to AttachmentMarkup.DEFAULT_PREVIEW_LENGTH characters, kept when the writer spilled.
+     */
+    public String getPreview()
+    {
+        return (spill != null) ? preview : buffer.substring(0, Math.min(buffer.length(), AttachmentMarkup.DEFAULT_PREVIEW_LENGTH));
+    }
+
+    @Override
+    public void flush() throws IOException
+    {
+        if (spill != null) spill.flush();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (spill != null) spill.close();
+    }
+}
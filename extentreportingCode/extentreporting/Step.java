@@ -0,0 +1,70 @@
+package extentreporting;
+
+import com.aventstack.extentreports.ExtentTest;
+import com.aventstack.extentreports.MediaEntityModelProvider;
+import com.aventstack.extentreports.Status;
+import com.aventstack.extentreports.markuputils.Markup;
+
+import java.util.Date;
+
+/**
+ * Step is one buffered log entry: its status, a message or markup, an optional screenshot and the time it was recorded.
+ * It is published into the ExtentTest later by a StepBuffer, keeping the original timestamp.
+ */
+public final class Step
+{
+    private final Status status;
+    private final String message;
+    private final Markup markup;
+    private final MediaEntityModelProvider media;
+    private final long timestamp;
+
+    public Step(Status status, String message, Markup markup, MediaEntityModelProvider media)
+    {
+        this.status = status;
+        this.message = message;
+        this.markup = markup;
+        this.media = media;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    public Status getStatus()
+    {
+        return status;
+    }
+
+    public String getMessage()
+    {
+        return message;
+    }
+
+    public Markup getMarkup()
+    {
+        return markup;
+    }
+
+    public MediaEntityModelProvider getMedia()
+    {
+        return media;
+    }
+
+    public long getTimestamp()
+    {
+        return timestamp;
+    }
+
+    /**
+     * Adds the step to the test's log, dated when it was recorded rather than when it is published.
+     */
+    public void publishTo(ExtentTest test)
+    {
+        if (markup != null)
+            test.log(status, markup);
+        else if (media != null)
+            test.log(status, message, media);
+        else
+            test.log(status, message);
+
+        test.getModel().getLogContext().getLast().setTimestamp(new Date(timestamp));
+    }
+}
@@ -0,0 +1,119 @@
+package extentreporting;
+
+import com.aventstack.extentreports.ExtentReports;
+import com.aventstack.extentreports.ExtentTest;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * StepBuffer collects the steps of one test without touching the shared Extent model.
+ * append() is a lock-free queue insert, so thousands of (virtual) threads can record steps without contending on ExtentTest or the report.
+ * publish() moves the buffered steps into the ExtentTest, in the order they were recorded.
+ * <p>
+ * A thread-confined buffer is published once, when the test finishes, by the thread that ran it.
+ * Steps from that thread go into a plain ArrayList with no synchronization at all. Steps from any other thread still go through the queue,
+ * and both are merged by timestamp when the batch is published.
+ */
+public class StepBuffer
+{
+    private final ExtentTest test;
+    private final ExtentReports report;
+    private final boolean isThreadConfined;
+    private final Thread owner;
+    private final ArrayList<Step> ownerSteps;
+    private final ConcurrentLinkedQueue<Step> steps = new ConcurrentLinkedQueue<>();
+
+    public StepBuffer(ExtentTest test, ExtentReports report)
+    {
+        this(test, report, false);
+    }
+
+    public StepBuffer(ExtentTest test, ExtentReports report, boolean isThreadConfined)
+    {
+        this.test = test;
+        this.report = report;
+        this.isThreadConfined = isThreadConfined;
+        this.owner = Thread.currentThread();
+        this.ownerSteps = isThreadConfined ? new ArrayList<>() : null;
+    }
+
+    public ExtentTest getTest()
+    {
+        return test;
+    }
+
+    public ExtentReports getReport()
+    {
+        return report;
+    }
+
+    /**
+     * Thread-confined buffers are only published at the end of the test, never by the flush thread.
+     */
+    public boolean isThreadConfined()
+    {
+        return isThreadConfined;
+    }
+
+    /**
+     * True when called from the thread that created the buffer.
+     */
+    public boolean isOwnedByCurrentThread()
+    {
+        return Thread.currentThread() == owner;
+    }
+
+    public void append(Step step)
+    {
+        if (isThreadConfined && Thread.currentThread() == owner)
+            ownerSteps.add(step);
+        else
+            steps.add(step);
+    }
+
+    /**
+     * Only reliable from the owner thread for a thread-confined buffer.
+     */
+    public boolean isEmpty()
+    {
+        return steps.isEmpty() && (ownerSteps == null || ownerSteps.isEmpty());
+    }
+
+    /**
+     * Moves every buffered step into the ExtentTest. Returns the number of steps published.
+     * For a thread-confined buffer, call this from the owner thread, or after the owner thread has finished recording.
+     */
+    public int publish()
+    {
+        List<Step> batch;
+        if (isThreadConfined)
+        {
+            batch = new ArrayList<>(ownerSteps);
+            ownerSteps.clear();
+            Step step;
+            while ((step = steps.poll()) != null)
+            {
+                batch.add(step);
+            }
+            //Stable sort, so steps recorded in the same millisecond keep the order of their own thread.
+            batch.sort(Comparator.comparingLong(Step::getTimestamp));
+        } else
+        {
+            batch = new ArrayList<>();
+            Step step;
+            while ((step = steps.poll()) != null)
+            {
+                batch.add(step);
+            }
+        }
+
+        for (Step step : batch)
+        {
+            step.publishTo(test);
+        }
+        return batch.size();
+    }
+}
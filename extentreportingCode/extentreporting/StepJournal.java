@@ -0,0 +1,278 @@
+package extentreporting;
+
+import com.aventstack.extentreports.ExtentTest;
+import com.aventstack.extentreports.Status;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * StepJournal appends every test and step of a ReportSession to journal.bin in the report folder, as they are recorded.
+ * The file is memory mapped in chunks, so an append is a copy into the page cache: no system call per step,
+ * and nothing written is lost when the JVM dies before the html report was flushed. JournalRenderer rebuilds the report from it offline.
+ * <p>
+ * Layout: a header (magic, version) followed by records of [int length][int crc32][payload].
+ * The mapped tail of the file is zero filled, so a reader stops at the first zero length, at a record cut short by a crash, or at a crc mismatch.
+ * <p>
+ * Enabled with -Dextent.journal=true. -Dextent.journal.chunkBytes sets how much of the file is mapped at a time, 4 MB by default.
+ */
+public class StepJournal implements Closeable
+{
+    public static final boolean DEFAULT_ENABLED = Boolean.getBoolean("extent.journal");
+    public static final int DEFAULT_CHUNK_BYTES = Integer.getInteger("extent.journal.chunkBytes", 4 * 1024 * 1024);
+    public static final String FILE_NAME = "journal.bin";
+
+    static final int MAGIC = 0x454A524E;
+    static final int VERSION = 1;
+    static final byte TEST = 1;
+    static final byte STEP = 2;
+
+    /**
+     * Receives the records of a journal in the order they were appended.
+     */
+    public interface Visitor
+    {
+        /**
+         * @param reportKey the test class of a session sharded by class, empty otherwise
+         */
+        void testCreated(int testId, String reportKey, String testName, long timestamp);
+
+        void step(int testId, Status status, String message, String markup, String mediaPath, long timestamp);
+    }
+
+    private final FileChannel channel;
+    private final int chunkBytes;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final CRC32 crc = new CRC32();
+    private final ByteArrayOutputStream payload = new ByteArrayOutputStream(256);
+    private final DataOutputStream payloadWriter = new DataOutputStream(payload);
+    private final AtomicInteger testIds = new AtomicInteger(0);
+    private final ConcurrentMap<ExtentTest, Integer> tests = new ConcurrentHashMap<>();
+    private MappedByteBuffer buffer;
+    private long bufferStart;
+    private long position;
+    private boolean isClosed = false;
+
+    public StepJournal(Path file) throws IOException
+    {
+        this(file, DEFAULT_CHUNK_BYTES);
+    }
+
+    public StepJournal(Path file, int chunkBytes) throws IOException
+    {
+        this.chunkBytes = chunkBytes;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        map(0, 8);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        position = 8;
+    }
+
+    /**
+     * Records a new test. Steps of tests that were never recorded here are ignored.
+     */
+    public void testCreated(String reportKey, ExtentTest test)
+    {
+        int testId = testIds.incrementAndGet();
+        if (tests.putIfAbsent(test, testId) != null)
+            return;
+
+        append(TEST, System.currentTimeMillis(), testId, reportKey, test.getModel().getName(), null, null);
+    }
+
+    public void step(ExtentTest test, Status status, String message, String markup, String mediaPath)
+    {
+        Integer testId = tests.get(test);
+        if (testId != null)
+            append(STEP, System.currentTimeMillis(), testId, status.name(), message, markup, mediaPath);
+    }
+
+    private void append(byte type, long timestamp, int testId, String first, String second, String third, String fourth)
+    {
+        lock.lock();
+        try
+        {
+            if (isClosed)
+                return;
+
+            payload.reset();
+            payloadWriter.writeByte(type);
+            payloadWriter.writeLong(timestamp);
+            payloadWriter.writeInt(testId);
+            writeString(first);
+            writeString(second);
+            writeString(third);
+            writeString(fourth);
+
+            byte[] bytes = payload.toByteArray();
+            crc.reset();
+            crc.update(bytes, 0, bytes.length);
+
+            int recordLength = 8 + bytes.length;
+            if (position + recordLength > bufferStart + buffer.capacity())
+                map(position, recordLength);
+
+            //The payload goes in before its length, so a reader never sees a length without the bytes behind it.
+            int offset = (int) (position - bufferStart);
+            buffer.position(offset + 4);
+            buffer.putInt((int) crc.getValue());
+            buffer.put(bytes);
+            buffer.putInt(offset, bytes.length);
+            position += recordLength;
+        } catch (IOException e)
+        {
+            System.err.println("Failed to append to the step journal - " + e.getMessage());
+        } finally
+        {
+            lock.unlock();
+        }
+    }
+
+    private void writeString(String value) throws IOException
+    {
+        if (value == null)
+        {
+            payloadWriter.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        payloadWriter.writeInt(bytes.length);
+        payloadWriter.write(bytes);
+    }
+
+    private void map(long start, int minimumBytes) throws IOException
+    {
+        bufferStart = start;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, start, Math.max(chunkBytes, minimumBytes));
+    }
+
+    /**
+     * Number of bytes of the journal written so far.
+     */
+    public long getLength()
+    {
+        lock.lock();
+        try
+        {
+            return position;
+        } finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forces the journal to disk and trims the unused mapped tail where the platform allows it.
+     */
+    @Override
+    public void close()
+    {
+        lock.lock();
+        try
+        {
+            if (isClosed)
+                return;
+            isClosed = true;
+
+            buffer.force();
+            buffer = null;
+            try
+            {
+                channel.truncate(position);
+            } catch (IOException e)
+            {//Windows doesn't truncate a file that is still mapped. Readers stop at the zero filled tail anyway.
+            }
+            channel.close();
+        } catch (IOException e)
+        {
+            System.err.println("Failed to close the step journal - " + e.getMessage());
+        } finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Streams the records of journal to visitor. Returns the number of records read.
+     * Reading stops quietly at the end of the valid records, e.g. the last step written before a crash.
+     */
+    public static long read(Path journal, Visitor visitor) throws IOException
+    {
+        try (InputStream stream = Files.newInputStream(journal);
+             DataInputStream input = new DataInputStream(new BufferedInputStream(stream, 64 * 1024)))
+        {
+            if (input.readInt() != MAGIC)
+                throw new IOException(journal + " is not a step journal");
+            int version = input.readInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported step journal version " + version);
+
+            CRC32 crc = new CRC32();
+            long records = 0;
+            while (true)
+            {
+                byte[] bytes;
+                try
+                {
+                    int length = input.readInt();
+                    int checksum = input.readInt();
+                    if (length <= 0)
+                        break;
+                    bytes = new byte[length];
+                    input.readFully(bytes);
+                    crc.reset();
+                    crc.update(bytes, 0, length);
+                    if ((int) crc.getValue() != checksum)
+                        break;
+                } catch (EOFException e)
+                {
+                    break;
+                }
+
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(bytes));
+                byte type = record.readByte();
+                long timestamp = record.readLong();
+                int testId = record.readInt();
+                String first = readString(record);
+                String second = readString(record);
+                String third = readString(record);
+                String fourth = readString(record);
+
+                if (type == TEST)
+                    visitor.testCreated(testId, first, second, timestamp);
+                else if (type == STEP)
+                    visitor.step(testId, Status.valueOf(first), second, third, fourth, timestamp);
+                records++;
+            }
+            return records;
+        }
+    }
+
+    private static String readString(DataInputStream input) throws IOException
+    {
+        int length = input.readInt();
+        if (length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,215 @@
+package extentreporting;
+
+import com.aventstack.extentreports.Status;
+import com.aventstack.extentreports.markuputils.ExtentColor;
+import org.junit.jupiter.api.TestInfo;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import java.io.Reader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * StepReporter is what a test needs to report its steps.
+ * ExtentReporter writes them to the Extent report, or to Output.txt when reporting is turned off. NullReporter drops them without doing any work.
+ * <p>
+ * The Supplier overloads only build their message when isEnabled() says the step would be recorded,
+ * so expensive messages cost nothing on a NullReporter or below ExtentReporter's minimum level.
+ */
+public interface StepReporter
+{
+    /**
+     * A NullReporter when -Dextent.disabled=true, otherwise a new ExtentReporter for the test.
+     */
+    static StepReporter create(WebDriver driver, TestInfo testInfo)
+    {
+        return Boolean.getBoolean("extent.disabled") ? NullReporter.INSTANCE : new ExtentReporter(driver, testInfo);
+    }
+
+    /**
+     * The reporter that does nothing.
+     */
+    static StepReporter disabled()
+    {
+        return NullReporter.INSTANCE;
+    }
+
+    /**
+     * False when a step of this status would be dropped, so its message doesn't need to be built.
+     */
+    boolean isEnabled(Status status);
+
+    String getCurrentTestName();
+
+    void stepPassed(String message);
+
+    void stepInfo(String message);
+
+    void stepWarning(String message);
+
+    void stepFailed(String message);
+
+    void stepFatal(String message);
+
+    default void stepPassed(Supplier<String> message)
+    {
+        if (isEnabled(Status.PASS)) stepPassed(message.get());
+    }
+
+    default void stepInfo(Supplier<String> message)
+    {
+        if (isEnabled(Status.INFO)) stepInfo(message.get());
+    }
+
+    default void stepWarning(Supplier<String> message)
+    {
+        if (isEnabled(Status.WARNING)) stepWarning(message.get());
+    }
+
+    default void stepFailed(Supplier<String> message)
+    {
+        if (isEnabled(Status.FAIL)) stepFailed(message.get());
+    }
+
+    default void stepFatal(Supplier<String> message)
+    {
+        if (isEnabled(Status.FATAL)) stepFatal(message.get());
+    }
+
+    void stepPassedWithXML(String message, String xmlCodeBlock);
+
+    void stepPassedWithJSON(String message, String jsonCodeBlock);
+
+    void stepFailedWithXML(String message, String xmlCodeBlock);
+
+    void stepFailedWithJSON(String message, String jsonCodeBlock);
+
+    void stepPassedWithXML(String message, Reader xml);
+
+    void stepPassedWithXML(String message, Path xmlFile);
+
+    void stepFailedWithXML(String message, Reader xml);
+
+    void stepFailedWithXML(String message, Path xmlFile);
+
+    void stepPassedWithJSON(String message, Reader json);
+
+    void stepPassedWithJSON(String message, Path jsonFile);
+
+    void stepFailedWithJSON(String message, Reader json);
+
+    void stepFailedWithJSON(String message, Path jsonFile);
+
+    void stepPassedWithTable(String message, List<ArrayList<String>> tableList, String... headers);
+
+    void stepPassedWithTable(String message, List<ArrayList<String>> tableList, ArrayList<String> headerList);
+
+    void stepPassedWithTable(String message, Iterable<? extends List<String>> rows, List<String> headers);
+
+    void stepPassedWithTable(String message, Stream<? extends List<String>> rows, List<String> headers);
+
+    void stepPassedWithTable(String message, RowCursor rows, List<String> headers);
+
+    void stepPassedWithLabel(String label, ExtentColor color);
+
+    default void stepPassedWithXML(Supplier<String> message, Supplier<String> xmlCodeBlock)
+    {
+        if (isEnabled(Status.PASS)) stepPassedWithXML(message.get(), xmlCodeBlock.get());
+    }
+
+    default void stepPassedWithJSON(Supplier<String> message, Supplier<String> jsonCodeBlock)
+    {
+        if (isEnabled(Status.PASS)) stepPassedWithJSON(message.get(), jsonCodeBlock.get());
+    }
+
+    default void stepFailedWithXML(Supplier<String> message, Supplier<String> xmlCodeBlock)
+    {
+        if (isEnabled(Status.FAIL)) stepFailedWithXML(message.get(), xmlCodeBlock.get());
+    }
+
+    default void stepFailedWithJSON(Supplier<String> message, Supplier<String> jsonCodeBlock)
+    {
+        if (isEnabled(Status.FAIL)) stepFailedWithJSON(message.get(), jsonCodeBlock.get());
+    }
+
+    /**
+     * The rows are only produced, e.g. queried, when the step is recorded.
+     */
+    default void stepPassedWithTable(Supplier<String> message, Supplier<? extends Iterable<? extends List<String>>> rows, List<String> headers)
+    {
+        if (isEnabled(Status.PASS)) stepPassedWithTable(message.get(), rows.get(), headers);
+    }
+
+    default void stepPassedWithLabel(Supplier<String> label, ExtentColor color)
+    {
+        if (isEnabled(Status.PASS)) stepPassedWithLabel(label.get(), color);
+    }
+
+    void stepPassedWithScreenshot(String message);
+
+    void stepPassedWithScreenshot(String message, WebElement element);
+
+    void stepFailedWithScreenshot(String message);
+
+    void stepFailedWithScreenshot(String message, WebElement element);
+
+    void stepWarningWithScreenshot(String message);
+
+    void stepSkipWithScreenshot(String message);
+
+    /**
+     * The screenshot is only captured when the step is recorded.
+     */
+    default void stepPassedWithScreenshot(Supplier<String> message)
+    {
+        if (isEnabled(Status.PASS)) stepPassedWithScreenshot(message.get());
+    }
+
+    default void stepFailedWithScreenshot(Supplier<String> message)
+    {
+        if (isEnabled(Status.FAIL)) stepFailedWithScreenshot(message.get());
+    }
+
+    default void stepWarningWithScreenshot(Supplier<String> message)
+    {
+        if (isEnabled(Status.WARNING)) stepWarningWithScreenshot(message.get());
+    }
+
+    default void stepSkipWithScreenshot(Supplier<String> message)
+    {
+        if (isEnabled(Status.SKIP)) stepSkipWithScreenshot(message.get());
+    }
+
+    /**
+     * Adds the step latency percentiles of the current test to it, see ExtentReporter.isTimingSteps.
+     */
+    void recordStepTimings();
+
+    /**
+     * Writes the snapshots kept in memory for the current test to the report, see ExtentReporter.setEvidenceSize.
+     */
+    void writeEvidence();
+
+    /**
+     * Drops the snapshots kept in memory for the current test, ending its invocation for evidence capture.
+     */
+    void discardEvidence();
+
+    /**
+     * Publishes the buffered steps of the current test, see ExtentReporter.isPublishingStepsOnFinalise.
+     */
+    void publishSteps();
+
+    void flushReport();
+
+    void finaliseTest();
+
+    /**
+     * Writes everything still pending and releases the reporter's resources. ExtentListener calls this once the test class has finished.
+     */
+    void close();
+}
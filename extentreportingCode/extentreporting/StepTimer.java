@@ -0,0 +1,80 @@
+package extentreporting;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * StepTimer measures the time between consecutive steps of one test with the monotonic System.nanoTime() clock.
+ * The first lap starts when the timer is created, i.e. with the test's first step.
+ * Every lap is kept so the end of the test can report exact percentiles.
+ */
+public class StepTimer
+{
+    private final AtomicLong lastNanos = new AtomicLong(System.nanoTime());
+    private final ReentrantLock lock = new ReentrantLock();
+    private long[] laps = new long[32];
+    private int count = 0;
+
+    /**
+     * Nanoseconds since the previous step, which this step becomes.
+     */
+    public long lap()
+    {
+        long now = System.nanoTime();
+        long nanos = now - lastNanos.getAndSet(now);
+
+        lock.lock();
+        try
+        {
+            if (count == laps.length)
+                laps = Arrays.copyOf(laps, count * 2);
+            laps[count++] = nanos;
+        } finally
+        {
+            lock.unlock();
+        }
+        return nanos;
+    }
+
+    public int getCount()
+    {
+        lock.lock();
+        try
+        {
+            return count;
+        } finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The lap durations in nanoseconds, sorted ascending.
+     */
+    public long[] getSortedLaps()
+    {
+        long[] sorted;
+        lock.lock();
+        try
+        {
+            sorted = Arrays.copyOf(laps, count);
+        } finally
+        {
+            lock.unlock();
+        }
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Nearest rank percentile, e.g. 0.9, of sortedLaps. 0 when there are none.
+     */
+    public static long percentile(long[] sortedLaps, double percentile)
+    {
+        if (sortedLaps.length == 0)
+            return 0L;
+        int rank = (int) Math.ceil(sortedLaps.length * percentile);
+        return sortedLaps[Math.max(0, Math.min(sortedLaps.length - 1, rank - 1))];
+    }
+}
@@ -0,0 +1,271 @@
+package extentreporting;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * StreamingFormatter pretty prints xml and JSON token by token, from a Reader, InputStream or file straight into a Writer.
+ * Unlike ReportFormatter it never holds the whole payload, a parsed tree or the formatted result in memory,
+ * so multi-megabyte responses can be formatted into an attachment file with a small, constant heap footprint.
+ */
+public final class StreamingFormatter
+{
+    /**
+     * Formatted payloads longer than this are written to an attachment file instead of being embedded in the report.
+     */
+    public static final int MAX_INLINE_LENGTH = Integer.getInteger("extent.inline.maxChars", 256 * 1024);
+
+    private static final XMLInputFactory xmlInputFactory = createXMLInputFactory();
+
+    private StreamingFormatter()
+    {
+    }
+
+    private static XMLInputFactory createXMLInputFactory()
+    {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    public static void formatXML(Path input, Writer output, int indent) throws IOException, XMLStreamException
+    {
+        try (InputStream stream = Files.newInputStream(input))
+        {
+            formatXML(stream, output, indent);
+        }
+    }
+
+    /**
+     * The xml declaration of the stream decides its encoding.
+     */
+    public static void formatXML(InputStream input, Writer output, int indent) throws IOException, XMLStreamException
+    {
+        formatXML(xmlInputFactory.createXMLStreamReader(input), output, indent);
+    }
+
+    public static void formatXML(Reader input, Writer output, int indent) throws IOException, XMLStreamException
+    {
+        formatXML(xmlInputFactory.createXMLStreamReader(input), output, indent);
+    }
+
+    private static void formatXML(XMLStreamReader reader, Writer output, int indent) throws IOException, XMLStreamException
+    {
+        String indentation = repeat(' ', indent);
+        int depth = 0;
+        boolean isStartTagOpen = false;
+        boolean hasText = false;
+
+        try
+        {
+            output.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+            while (reader.hasNext())
+            {
+                switch (reader.next())
+                {
+                    case XMLStreamConstants.START_ELEMENT:
+                        if (isStartTagOpen) output.write('>');
+                        newLine(output, indentation, depth);
+                        output.write('<');
+                        output.write(getQualifiedName(reader.getPrefix(), reader.getLocalName()));
+                        writeNamespaces(reader, output);
+                        writeAttributes(reader, output);
+                        isStartTagOpen = true;
+                        hasText = false;
+                        depth++;
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        depth--;
+                        if (isStartTagOpen)
+                        {
+                            output.write("/>");
+                        } else
+                        {
+                            if (!hasText) newLine(output, indentation, depth);
+                            output.write("</");
+                            output.write(getQualifiedName(reader.getPrefix(), reader.getLocalName()));
+                            output.write('>');
+                        }
+                        isStartTagOpen = false;
+                        hasText = false;
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.ENTITY_REFERENCE:
+                        if (reader.isWhiteSpace()) break;
+                        if (isStartTagOpen) output.write('>');
+                        isStartTagOpen = false;
+                        writeEscaped(reader.getText(), output, false);
+                        hasText = true;
+                        break;
+                    case XMLStreamConstants.CDATA:
+                        if (isStartTagOpen) output.write('>');
+                        isStartTagOpen = false;
+                        output.write("<![CDATA[");
+                        output.write(reader.getText());
+                        output.write("]]>");
+                        hasText = true;
+                        break;
+                    case XMLStreamConstants.COMMENT:
+                        if (isStartTagOpen) output.write('>');
+                        isStartTagOpen = false;
+                        newLine(output, indentation, depth);
+                        output.write("<!--");
+                        output.write(reader.getText());
+                        output.write("-->");
+                        break;
+                    case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                        if (isStartTagOpen) output.write('>');
+                        isStartTagOpen = false;
+                        newLine(output, indentation, depth);
+                        output.write("<?");
+                        output.write(reader.getPITarget());
+                        if (reader.getPIData() != null && !reader.getPIData().isEmpty())
+                        {
+                            output.write(' ');
+                            output.write(reader.getPIData());
+                        }
+                        output.write("?>");
+                        break;
+                    case XMLStreamConstants.DTD:
+                        newLine(output, indentation, depth);
+                        output.write(reader.getText());
+                        break;
+                    default:
+                        break;
+                }
+            }
+            output.write(System.lineSeparator());
+            output.flush();
+        } finally
+        {
+            reader.close();
+        }
+    }
+
+    private static void writeNamespaces(XMLStreamReader reader, Writer output) throws IOException
+    {
+        for (int i = 0; i < reader.getNamespaceCount(); i++)
+        {
+            String prefix = reader.getNamespacePrefix(i);
+            output.write((prefix == null || prefix.isEmpty()) ? " xmlns=\"" : " xmlns:" + prefix + "=\"");
+            writeEscaped(reader.getNamespaceURI(i), output, true);
+            output.write('"');
+        }
+    }
+
+    private static void writeAttributes(XMLStreamReader reader, Writer output) throws IOException
+    {
+        for (int i = 0; i < reader.getAttributeCount(); i++)
+        {
+            output.write(' ');
+            output.write(getQualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)));
+            output.write("=\"");
+            writeEscaped(reader.getAttributeValue(i), output, true);
+            output.write('"');
+        }
+    }
+
+    private static String getQualifiedName(String prefix, String localName)
+    {
+        return (prefix == null || prefix.isEmpty()) ? localName : prefix + ":" + localName;
+    }
+
+    private static void writeEscaped(String text, Writer output, boolean isAttribute) throws IOException
+    {
+        if (text == null) return;
+        for (int i = 0; i < text.length(); i++)
+        {
+            char c = text.charAt(i);
+            switch (c)
+            {
+                case '<': output.write("&lt;"); break;
+                case '>': output.write("&gt;"); break;
+                case '&': output.write("&amp;"); break;
+                case '"':
+                    if (isAttribute) output.write("&quot;");
+                    else output.write(c);
+                    break;
+                default: output.write(c);
+            }
+        }
+    }
+
+    private static void newLine(Writer output, String indentation, int depth) throws IOException
+    {
+        output.write(System.lineSeparator());
+        for (int i = 0; i < depth; i++)
+        {
+            output.write(indentation);
+        }
+    }
+
+    public static void formatJSON(Path input, Writer output) throws IOException
+    {
+        try (Reader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8))
+        {
+            formatJSON(reader, output);
+        }
+    }
+
+    public static void formatJSON(InputStream input, Writer output) throws IOException
+    {
+        formatJSON(new InputStreamReader(input, StandardCharsets.UTF_8), output);
+    }
+
+    /**
+     * Copies the JSON token by token into a JsonWriter with the same two space indent as ReportFormatter.
+     */
+    public static void formatJSON(Reader input, Writer output) throws IOException
+    {
+        JsonReader reader = new JsonReader(input);
+        reader.setLenient(true);
+        JsonWriter writer = new JsonWriter(output);
+        writer.setIndent("  ");
+
+        while (true)
+        {
+            JsonToken token = reader.peek();
+            switch (token)
+            {
+                case BEGIN_ARRAY: reader.beginArray(); writer.beginArray(); break;
+                case END_ARRAY: reader.endArray(); writer.endArray(); break;
+                case BEGIN_OBJECT: reader.beginObject(); writer.beginObject(); break;
+                case END_OBJECT: reader.endObject(); writer.endObject(); break;
+                case NAME: writer.name(reader.nextName()); break;
+                case STRING: writer.value(reader.nextString()); break;
+                case NUMBER: writer.jsonValue(reader.nextString()); break;
+                case BOOLEAN: writer.value(reader.nextBoolean()); break;
+                case NULL: reader.nextNull(); writer.nullValue(); break;
+                case END_DOCUMENT:
+                    writer.flush();
+                    return;
+            }
+        }
+    }
+
+    private static String repeat(char c, int count)
+    {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++)
+        {
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,130 @@
+package extentreporting;
+
+import com.aventstack.extentreports.markuputils.Markup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * StreamingTable renders table rows straight into the html markup as they are added, without an intermediate 2D array.
+ * Only the first maxInlineRows rows, and no more than maxInlineLength characters of markup, are embedded in the report.
+ * Once a table grows past that, every row, including the ones already embedded, is written to a csv attachment supplied on demand,
+ * and the remaining rows are streamed to it.
+ */
+public class StreamingTable implements AutoCloseable
+{
+    public static final int DEFAULT_MAX_INLINE_ROWS = Integer.getInteger("extent.table.maxInlineRows", 500);
+
+    private final List<String> headers;
+    private final int maxInlineRows;
+    private final int maxInlineLength;
+    private final Supplier<Path> csvFileSupplier;
+    private final StringBuilder html = new StringBuilder("<table class='runtime-table table-striped table'>");
+    private final List<List<String>> inlineRows = new ArrayList<>();
+    private Writer csv;
+    private Path csvFile;
+    private int rowCount = 0;
+
+    public StreamingTable(List<String> headers, int maxInlineRows, Supplier<Path> csvFileSupplier)
+    {
+        this(headers, maxInlineRows, Integer.MAX_VALUE, csvFileSupplier);
+    }
+
+    public StreamingTable(List<String> headers, int maxInlineRows, int maxInlineLength, Supplier<Path> csvFileSupplier)
+    {
+        this.headers = headers;
+        this.maxInlineRows = maxInlineRows;
+        this.maxInlineLength = maxInlineLength;
+        this.csvFileSupplier = csvFileSupplier;
+
+        if (headers != null && !headers.isEmpty())
+            appendHtmlRow(headers);
+    }
+
+    public void addRow(List<String> row) throws IOException
+    {
+        rowCount++;
+        if (csv == null && rowCount <= maxInlineRows && html.length() < maxInlineLength)
+        {
+            appendHtmlRow(row);
+            inlineRows.add(row);
+            return;
+        }
+
+        if (csv == null)
+        {
+            csvFile = csvFileSupplier.get();
+            csv = Files.newBufferedWriter(csvFile, StandardCharsets.UTF_8);
+            if (headers != null && !headers.isEmpty()) writeCsvRow(headers);
+            for (List<String> inlineRow : inlineRows)
+            {
+                writeCsvRow(inlineRow);
+            }
+            inlineRows.clear();
+        }
+        writeCsvRow(row);
+    }
+
+    public int getRowCount()
+    {
+        return rowCount;
+    }
+
+    public boolean isSpilled()
+    {
+        return csv != null;
+    }
+
+    /**
+     * The csv attachment, or null when every row fitted inline.
+     */
+    public Path getCsvFile()
+    {
+        return csvFile;
+    }
+
+    /**
+     * Markup of the embedded rows, in the same format as MarkupHelper.createTable().
+     */
+    public Markup getMarkup()
+    {
+        String markup = html.toString() + "</table>";
+        return () -> markup;
+    }
+
+    private void appendHtmlRow(List<String> row)
+    {
+        html.append("<tr>");
+        for (String cell : row)
+        {
+            html.append("<td>").append(cell).append("</td>");
+        }
+        html.append("</tr>");
+    }
+
+    private void writeCsvRow(List<String> row) throws IOException
+    {
+        for (int i = 0; i < row.size(); i++)
+        {
+            if (i > 0) csv.write(',');
+            String cell = (row.get(i) == null) ? "" : row.get(i);
+            if (cell.contains(",") || cell.contains("\"") || cell.contains("\n") || cell.contains("\r"))
+                csv.write("\"" + cell.replace("\"", "\"\"") + "\"");
+            else
+                csv.write(cell);
+        }
+        csv.write("\r\n");
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (csv != null) csv.close();
+    }
+}
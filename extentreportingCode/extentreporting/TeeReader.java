@@ -0,0 +1,84 @@
+package extentreporting;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * TeeReader copies every character read from its Reader to a Writer.
+ * ExtentReporter tees a streamed payload into a SpillingWriter, so the raw text can still be reported when formatting it fails halfway.
+ */
+public class TeeReader extends FilterReader
+{
+    private final Writer copy;
+
+    public TeeReader(Reader in, Writer copy)
+    {
+        super(in);
+        this.copy = copy;
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        int c = super.read();
+        if (c >= 0)
+            copy.write(c);
+        return c;
+    }
+
+    @Override
+    public int read(char[] chars, int offset, int length) throws IOException
+    {
+        int read = super.read(chars, offset, length);
+        if (read > 0)
+            copy.write(chars, offset, read);
+        return read;
+    }
+
+    @Override
+    public long skip(long count) throws IOException
+    {
+        //Skipped characters must reach the copy as well.
+        char[] chars = new char[(int) Math.min(count, 8192)];
+        long skipped = 0;
+        while (skipped < count)
+        {
+            int read = read(chars, 0, (int) Math.min(chars.length, count - skipped));
+            if (read < 0)
+                break;
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported()
+    {
+        return false;
+    }
+
+    @Override
+    public void mark(int readAheadLimit) throws IOException
+    {
+        throw new IOException("mark() is not supported");
+    }
+
+    @Override
+    public void reset() throws IOException
+    {
+        throw new IOException("reset() is not supported");
+    }
+
+    /**
+     * Reads the rest of the input, so the copy holds all of it.
+     */
+    public void drain() throws IOException
+    {
+        char[] chars = new char[8192];
+        while (read(chars, 0, chars.length) >= 0)
+        {
+        }
+    }
+}
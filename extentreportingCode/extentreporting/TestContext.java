@@ -0,0 +1,108 @@
+package extentreporting;
+
+import java.util.concurrent.Callable;
+
+/**
+ * TestContext holds the name of the test running on the current thread.
+ * ExtentListener populates it before every test method executes, which lets ExtentReporter.getCurrentTestName()
+ * resolve the test for parallel execution with a single lookup instead of walking the stack.
+ * <p>
+ * The name is only meant to reach other threads through wrap(), or by binding it explicitly with runWithTestName().
+ * A thread created during a test does inherit it, and a pool thread created lazily keeps that stale name for every later task,
+ * so tasks submitted to an executor should always be wrapped. The library's own threads are created through newThread() and start with no name bound.
+ */
+public final class TestContext
+{
+    private static final InheritableThreadLocal<String> currentTestName = new InheritableThreadLocal<>();
+
+    private TestContext()
+    {
+    }
+
+    public static String getCurrentTestName()
+    {
+        return currentTestName.get();
+    }
+
+    public static void setCurrentTestName(String testName)
+    {
+        currentTestName.set(testName);
+    }
+
+    public static void clear()
+    {
+        currentTestName.remove();
+    }
+
+    /**
+     * Runs the task with testName bound, restoring the previous binding afterwards.
+     * A scoped alternative to setCurrentTestName() for code that starts its own (virtual) threads per test.
+     */
+    public static void runWithTestName(String testName, Runnable task)
+    {
+        String previous = getCurrentTestName();
+        setCurrentTestName(testName);
+        try
+        {
+            task.run();
+        } finally
+        {
+            restore(previous);
+        }
+    }
+
+    /**
+     * Calls the task with testName bound, restoring the previous binding afterwards.
+     */
+    public static <T> T callWithTestName(String testName, Callable<T> task) throws Exception
+    {
+        String previous = getCurrentTestName();
+        setCurrentTestName(testName);
+        try
+        {
+            return task.call();
+        } finally
+        {
+            restore(previous);
+        }
+    }
+
+    /**
+     * A thread that runs task with no test name bound, whichever thread creates it.
+     * The flush, log, screenshot and merge threads are created through it, so they never report under the test that happened to start them.
+     */
+    static Thread newThread(Runnable task, String name)
+    {
+        return new Thread(() ->
+        {
+            clear();
+            task.run();
+        }, name);
+    }
+
+    /**
+     * Captures the test name of the calling thread and binds it while the task runs on another thread.
+     */
+    public static Runnable wrap(Runnable task)
+    {
+        String testName = getCurrentTestName();
+        return () -> runWithTestName(testName, task);
+    }
+
+    /**
+     * Captures the test name of the calling thread and binds it while the task runs on another thread.
+     */
+    public static <T> Callable<T> wrap(Callable<T> task)
+    {
+        String testName = getCurrentTestName();
+        return () -> callWithTestName(testName, task);
+    }
+
+    private static void restore(String previous)
+    {
+        if (previous == null)
+            clear();
+        else
+            setCurrentTestName(previous);
+    }
+}